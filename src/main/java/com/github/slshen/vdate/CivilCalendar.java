@@ -0,0 +1,242 @@
+package com.github.slshen.vdate;
+
+import java.time.temporal.ChronoField;
+
+/**
+ * Proleptic Gregorian calendar arithmetic on epoch-days (days since
+ * 1970-01-01), matching {@link java.time.LocalDate}.
+ *
+ * <p>
+ * The conversions use the era-based algorithms from Howard Hinnant's
+ * <em>chrono-Compatible Low-Level Date Algorithms</em>: the year is shifted to
+ * start in March so that the leap day is last, which replaces the month
+ * tables and most of the branches with arithmetic.
+ *
+ * <p>
+ * Within a range of years (by default 1600 to 2399, configurable with e.g.
+ * <code>-Dvdate.calendar.years=1900-2100</code>) conversions instead use
+ * tables of the epoch-day each year starts on and of the month of each day of
+ * the year, which are small enough to stay in cache and need no divisions
+ * apart from a multiplication by a constant to estimate the year. The year
+ * estimate is corrected with data-dependent loops, so the methods used by the
+ * bulk loops of {@link VDateArrays} ({@link #plusMonths},
+ * {@link #monthsBetween}, {@link #endOfMonth}) keep to the branch-light
+ * arithmetic. A range that cannot be parsed is logged and the default is used.
+ *
+ * <p>
+ * Dates are returned packed into a long as <code>year &lt;&lt; 9 | month
+ * &lt;&lt; 5 | day</code> so that loops over arrays do not allocate.
+ */
+final class CivilCalendar {
+
+	static final int DAYS_PER_ERA = 146_097;
+	static final int DAYS_0000_TO_1970 = 719_468;
+
+	/** the first and last years of the tables */
+	static final int MIN_TABLE_YEAR;
+	static final int MAX_TABLE_YEAR;
+
+	private static final long FIRST_DAY;
+	/** days from FIRST_DAY to the start of each year, plus one past the end */
+	private static final int[] YEAR_START;
+	/** days before each month (1-based) in common and then leap years */
+	private static final short[] DAYS_BEFORE_MONTH = new short[26];
+	/** the month of each day of the year (0-based) in common and then leap years */
+	private static final byte[] MONTH_OF_DAY = new byte[365 + 366];
+
+	static {
+		int from = 1600;
+		int to = 2399;
+		String years = System.getProperty("vdate.calendar.years");
+		if (years != null && !years.trim().isEmpty()) {
+			try {
+				int[] range = parseYears(years);
+				if (range[1] - range[0] > 100_000) {
+					throw new IllegalArgumentException("more than 100000 years");
+				}
+				from = range[0];
+				to = range[1];
+			} catch (IllegalArgumentException e) {
+				System.getLogger(CivilCalendar.class.getName()).log(System.Logger.Level.WARNING,
+						"ignoring vdate.calendar.years=" + years + ": " + e.getMessage());
+			}
+		}
+		MIN_TABLE_YEAR = from;
+		MAX_TABLE_YEAR = to;
+		FIRST_DAY = computeEpochDay(from, 1, 1);
+		YEAR_START = new int[to - from + 2];
+		for (int y = from; y <= to + 1; y++) {
+			YEAR_START[y - from] = (int) (computeEpochDay(y, 1, 1) - FIRST_DAY);
+		}
+		for (int leap = 0; leap < 2; leap++) {
+			int days = 0;
+			int base = leap == 0 ? 0 : 365;
+			for (int m = 1; m <= 12; m++) {
+				DAYS_BEFORE_MONTH[leap * 13 + m] = (short) days;
+				int length = m == 2 ? 28 + leap : lengthOfMonth(2001, m);
+				for (int d = 0; d < length; d++) {
+					MONTH_OF_DAY[base + days + d] = (byte) m;
+				}
+				days += length;
+			}
+		}
+	}
+
+	private CivilCalendar() {
+	}
+
+	/**
+	 * Parse a range of years, <code>from-to</code> or a single year, as used by
+	 * the system properties. Years may be negative, e.g.
+	 * <code>-100--50</code>.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the text is not a range of years, or from is after to
+	 */
+	static int[] parseYears(String text) {
+		String trimmed = text.trim();
+		// the separator is the first '-' that is not a sign
+		int dash = trimmed.indexOf('-', 1);
+		int from = Integer.parseInt(dash < 0 ? trimmed : trimmed.substring(0, dash).trim());
+		int to = dash < 0 ? from : Integer.parseInt(trimmed.substring(dash + 1).trim());
+		if (from > to) {
+			throw new IllegalArgumentException("bad year range " + text);
+		}
+		return new int[] { from, to };
+	}
+
+	static long pack(long year, int month, int day) {
+		return year << 9 | month << 5 | day;
+	}
+
+	static int year(long packed) {
+		return (int) (packed >> 9);
+	}
+
+	static int month(long packed) {
+		return (int) (packed >>> 5) & 0xF;
+	}
+
+	static int day(long packed) {
+		return (int) packed & 0x1F;
+	}
+
+	/**
+	 * Return the packed year, month and day of an epoch-day.
+	 */
+	static long fromEpochDay(long epochDay) {
+		long i = epochDay - FIRST_DAY;
+		if (i >= 0 && i < YEAR_START[YEAR_START.length - 1]) {
+			int day = (int) i;
+			// estimate the year from the average year length and correct it
+			int y = (int) Math.min(i * 400 / DAYS_PER_ERA, YEAR_START.length - 2);
+			while (YEAR_START[y + 1] <= day) {
+				y++;
+			}
+			while (YEAR_START[y] > day) {
+				y--;
+			}
+			int doy = day - YEAR_START[y];
+			int leap = YEAR_START[y + 1] - YEAR_START[y] - 365;
+			int month = MONTH_OF_DAY[leap * 365 + doy];
+			return pack(MIN_TABLE_YEAR + y, month, doy - DAYS_BEFORE_MONTH[leap * 13 + month] + 1);
+		}
+		return computeFromEpochDay(epochDay);
+	}
+
+	private static long computeFromEpochDay(long epochDay) {
+		long z = epochDay + DAYS_0000_TO_1970;
+		long era = Math.floorDiv(z, DAYS_PER_ERA);
+		long doe = z - era * DAYS_PER_ERA;
+		long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+		long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+		long mp = (5 * doy + 2) / 153;
+		int day = (int) (doy - (153 * mp + 2) / 5 + 1);
+		// mp is 0 for March ... 11 for February
+		int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+		long year = yoe + era * 400 + (month <= 2 ? 1 : 0);
+		return pack(year, month, day);
+	}
+
+	static long toEpochDay(long year, int month, int day) {
+		if (year >= MIN_TABLE_YEAR && year <= MAX_TABLE_YEAR) {
+			int y = (int) year - MIN_TABLE_YEAR;
+			int leap = YEAR_START[y + 1] - YEAR_START[y] - 365;
+			return FIRST_DAY + YEAR_START[y] + DAYS_BEFORE_MONTH[leap * 13 + month] + day - 1;
+		}
+		return computeEpochDay(year, month, day);
+	}
+
+	private static long computeEpochDay(long year, int month, int day) {
+		long y = year - (month <= 2 ? 1 : 0);
+		long era = Math.floorDiv(y, 400);
+		long yoe = y - era * 400;
+		long mp = month > 2 ? month - 3 : month + 9;
+		long doy = (153 * mp + 2) / 5 + day - 1;
+		long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+		return era * DAYS_PER_ERA + doe - DAYS_0000_TO_1970;
+	}
+
+	/**
+	 * Day of year, 1 to 366.
+	 */
+	static int dayOfYear(long epochDay) {
+		long packed = fromEpochDay(epochDay);
+		int year = year(packed);
+		int month = month(packed);
+		int leap = isLeapYear(year) ? 1 : 0;
+		return DAYS_BEFORE_MONTH[leap * 13 + month] + day(packed);
+	}
+
+	static boolean isLeapYear(long year) {
+		return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+	}
+
+	static int lengthOfMonth(long year, int month) {
+		if (month == 2) {
+			return isLeapYear(year) ? 29 : 28;
+		}
+		// 31 for odd months up to July and even months from August
+		return 30 + ((month + (month >> 3)) & 1);
+	}
+
+	/**
+	 * ISO day of week, 1 (Monday) to 7 (Sunday).
+	 */
+	static int dayOfWeek(long epochDay) {
+		return (int) Math.floorMod(epochDay + 3, 7) + 1;
+	}
+
+	/**
+	 * Add months the way {@link java.time.LocalDate#plusMonths(long)} does,
+	 * clamping the day to the end of the resulting month.
+	 */
+	static long plusMonths(long epochDay, long months) {
+		if (months == 0) {
+			return epochDay;
+		}
+		long packed = computeFromEpochDay(epochDay);
+		long monthCount = Math.addExact(year(packed) * 12L + month(packed) - 1, months);
+		long year = ChronoField.YEAR.checkValidValue(Math.floorDiv(monthCount, 12));
+		int month = (int) Math.floorMod(monthCount, 12) + 1;
+		return computeEpochDay(year, month, Math.min(day(packed), lengthOfMonth(year, month)));
+	}
+
+	/**
+	 * Whole months from one epoch-day to another, as in
+	 * {@link java.time.temporal.ChronoUnit#MONTHS}.
+	 */
+	static long monthsBetween(long fromEpochDay, long toEpochDay) {
+		long from = computeFromEpochDay(fromEpochDay);
+		long to = computeFromEpochDay(toEpochDay);
+		long packed1 = (year(from) * 12L + month(from) - 1) * 32 + day(from);
+		long packed2 = (year(to) * 12L + month(to) - 1) * 32 + day(to);
+		return (packed2 - packed1) / 32;
+	}
+
+	static long endOfMonth(long epochDay) {
+		long packed = computeFromEpochDay(epochDay);
+		return epochDay - day(packed) + lengthOfMonth(year(packed), month(packed));
+	}
+
+}
@@ -0,0 +1,50 @@
+package com.github.slshen.vdate;
+
+import java.time.Instant;
+
+/**
+ * Conversions between instants and a single long of nanoseconds since the
+ * epoch, which covers the years 1677 through 2262.
+ */
+final class EpochNanos {
+
+	private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+	private EpochNanos() {
+	}
+
+	/**
+	 * @throws ArithmeticException
+	 *             if the instant is out of range
+	 */
+	static long of(Instant instant) {
+		return Math.addExact(Math.multiplyExact(instant.getEpochSecond(), NANOS_PER_SECOND), instant.getNano());
+	}
+
+	static long of(VTimestamp timestamp) {
+		return of(timestamp.toInstant());
+	}
+
+	static Instant toInstant(long epochNanos) {
+		return Instant.ofEpochSecond(Math.floorDiv(epochNanos, NANOS_PER_SECOND),
+				Math.floorMod(epochNanos, NANOS_PER_SECOND));
+	}
+
+	static VTimestamp toTimestamp(long epochNanos) {
+		return new VTimestamp(toInstant(epochNanos));
+	}
+
+	/**
+	 * Return the duration portion of an interval in nanos.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the interval has a period portion
+	 */
+	static long durationOf(VInterval interval, String name) {
+		if (!interval.getPeriod().isZero()) {
+			throw new IllegalArgumentException(name + " must not have a period portion: " + interval);
+		}
+		return interval.getDuration().toNanos();
+	}
+
+}
@@ -0,0 +1,114 @@
+package com.github.slshen.vdate;
+
+import java.util.Arrays;
+import java.util.function.LongFunction;
+
+/**
+ * A minimal open-addressing hash map from primitive long keys to values, so
+ * that accumulating by epoch-day, hour, etc. does not box the keys. Not
+ * thread-safe and does not support removal.
+ */
+final class LongHashMap<V> {
+
+	interface Consumer<V> {
+		void accept(long key, V value);
+	}
+
+	private long[] keys;
+	private Object[] values;
+	private int size;
+	private int shift;
+
+	LongHashMap() {
+		this(16);
+	}
+
+	LongHashMap(int expectedSize) {
+		int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+		keys = new long[capacity];
+		values = new Object[capacity];
+		shift = 64 - Integer.numberOfTrailingZeros(capacity);
+	}
+
+	int size() {
+		return size;
+	}
+
+	V get(long key) {
+		int mask = keys.length - 1;
+		for (int i = slot(key); values[i] != null; i = (i + 1) & mask) {
+			if (keys[i] == key) {
+				@SuppressWarnings("unchecked")
+				V v = (V) values[i];
+				return v;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Put a non-null value, returning the previous value or <code>null</code>.
+	 */
+	V put(long key, V value) {
+		int mask = keys.length - 1;
+		int i = slot(key);
+		for (; values[i] != null; i = (i + 1) & mask) {
+			if (keys[i] == key) {
+				@SuppressWarnings("unchecked")
+				V old = (V) values[i];
+				values[i] = value;
+				return old;
+			}
+		}
+		keys[i] = key;
+		values[i] = value;
+		if (++size * 2 > keys.length) {
+			grow();
+		}
+		return null;
+	}
+
+	V computeIfAbsent(long key, LongFunction<? extends V> function) {
+		V value = get(key);
+		if (value == null) {
+			value = function.apply(key);
+			put(key, value);
+		}
+		return value;
+	}
+
+	void forEach(Consumer<? super V> consumer) {
+		for (int i = 0; i < keys.length; i++) {
+			if (values[i] != null) {
+				@SuppressWarnings("unchecked")
+				V v = (V) values[i];
+				consumer.accept(keys[i], v);
+			}
+		}
+	}
+
+	private int slot(long key) {
+		return (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+	}
+
+	private void grow() {
+		long[] oldKeys = keys;
+		Object[] oldValues = values;
+		keys = new long[oldKeys.length * 2];
+		values = new Object[oldValues.length * 2];
+		shift--;
+		int mask = keys.length - 1;
+		for (int j = 0; j < oldKeys.length; j++) {
+			if (oldValues[j] != null) {
+				int i = slot(oldKeys[j]);
+				while (values[i] != null) {
+					i = (i + 1) & mask;
+				}
+				keys[i] = oldKeys[j];
+				values[i] = oldValues[j];
+			}
+		}
+		Arrays.fill(oldValues, null);
+	}
+
+}
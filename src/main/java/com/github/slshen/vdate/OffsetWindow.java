@@ -0,0 +1,63 @@
+package com.github.slshen.vdate;
+
+import java.time.Instant;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+
+/**
+ * Caches the offset of a zone between two transitions, so that looking up the
+ * offset of a run of nearby instants only consults the {@link ZoneRules} (and
+ * allocates) when the run crosses a transition. Not thread-safe.
+ */
+final class OffsetWindow {
+	private final ZoneRules rules;
+	private long start = Long.MAX_VALUE;
+	private long end = Long.MIN_VALUE;
+	private int offset;
+
+	OffsetWindow(ZoneRules rules) {
+		this.rules = rules;
+		if (rules.isFixedOffset()) {
+			start = Long.MIN_VALUE;
+			end = Long.MAX_VALUE;
+			offset = rules.getOffset(Instant.EPOCH).getTotalSeconds();
+		}
+	}
+
+	/**
+	 * Return the offset in seconds at the given instant.
+	 */
+	int offsetAt(long epochSecond) {
+		if (epochSecond < start || epochSecond >= end) {
+			move(epochSecond);
+		}
+		return offset;
+	}
+
+	/**
+	 * The first epoch second at which the last returned offset applies.
+	 */
+	long getStart() {
+		return start;
+	}
+
+	/**
+	 * The epoch second at which the last returned offset stops applying.
+	 */
+	long getEnd() {
+		return end;
+	}
+
+	private void move(long epochSecond) {
+		Instant instant = Instant.ofEpochSecond(epochSecond);
+		offset = rules.getOffset(instant).getTotalSeconds();
+		// previousTransition is strictly before its argument
+		ZoneOffsetTransition previous = epochSecond < Instant.MAX.getEpochSecond()
+				? rules.previousTransition(instant.plusSeconds(1))
+				: rules.previousTransition(instant);
+		ZoneOffsetTransition next = rules.nextTransition(instant);
+		start = previous != null ? previous.toEpochSecond() : Long.MIN_VALUE;
+		end = next != null ? next.toEpochSecond() : Long.MAX_VALUE;
+	}
+
+}
@@ -0,0 +1,86 @@
+package com.github.slshen.vdate;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * Helpers for splitting bulk operations on arrays into chunks that run on a
+ * {@link ForkJoinPool}.
+ */
+final class Parallel {
+
+	/**
+	 * Arrays shorter than this are always processed on the calling thread.
+	 */
+	static final int THRESHOLD = 1 << 16;
+
+	private static final int MIN_CHUNK = 1 << 14;
+
+	private Parallel() {
+	}
+
+	/**
+	 * Return the number of chunks to split <code>n</code> elements into, or 1 if
+	 * the work should not be split.
+	 */
+	static int chunks(ForkJoinPool pool, int n) {
+		if (pool == null || n < THRESHOLD || pool.getParallelism() < 2) {
+			return 1;
+		}
+		return Math.max(1, Math.min(pool.getParallelism() * 4, n / MIN_CHUNK));
+	}
+
+	static int chunkStart(int n, int chunks, int chunk) {
+		return (int) ((long) n * chunk / chunks);
+	}
+
+	/**
+	 * Run <code>body</code> for each chunk index in <code>[0, chunks)</code> and
+	 * wait for all of them to complete.
+	 */
+	static void forEach(ForkJoinPool pool, int chunks, IntConsumer body) {
+		if (chunks == 1) {
+			body.accept(0);
+		} else {
+			pool.invoke(new Chunks(body, 0, chunks));
+		}
+	}
+
+	/**
+	 * Run <code>body</code> over the ranges <code>[from, to)</code> that split
+	 * <code>n</code> elements.
+	 */
+	static void forEachRange(ForkJoinPool pool, int n, RangeBody body) {
+		int chunks = chunks(pool, n);
+		forEach(pool, chunks, c -> body.accept(chunkStart(n, chunks, c), chunkStart(n, chunks, c + 1)));
+	}
+
+	interface RangeBody {
+		void accept(int from, int to);
+	}
+
+	private static class Chunks extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final IntConsumer body;
+		private final int from;
+		private final int to;
+
+		Chunks(IntConsumer body, int from, int to) {
+			this.body = body;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from == 1) {
+				body.accept(from);
+			} else {
+				int mid = (from + to) >>> 1;
+				invokeAll(new Chunks(body, from, mid), new Chunks(body, mid, to));
+			}
+		}
+	}
+
+}
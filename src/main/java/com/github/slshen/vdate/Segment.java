@@ -0,0 +1,258 @@
+package com.github.slshen.vdate;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * One day of samples in a {@link VTimeSeriesStore}: a memory-mapped data file
+ * of fixed size (timestamp, value) records in timestamp order, and a
+ * memory-mapped sparse index with the timestamp of every
+ * {@link #BLOCK_SIZE}th record.
+ *
+ * <p>
+ * The data file starts with a header holding the record count, which is
+ * updated after each append; the index is derived from the count, so opening a
+ * segment does not read the records. A data file that exists but is too short
+ * to hold the header is rejected rather than re-initialised.
+ *
+ * <p>
+ * Closing a segment truncates both files to the records appended, so the
+ * space mapped ahead of them is returned to the file system. Java has no
+ * supported way to unmap a buffer, so closing only drops the segment's
+ * references to the mappings; they are released when the buffers, including
+ * those held by outstanding {@link View}s, are garbage collected.
+ */
+final class Segment implements Closeable {
+
+	static final int BLOCK_SIZE = 256;
+
+	private static final int MAGIC = 0x56545353; // VTSS
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 64;
+	private static final int COUNT_OFFSET = 8;
+	private static final int RECORD_SIZE = 16;
+	private static final int INITIAL_CAPACITY = 1 << 12;
+	private static final long MAX_CAPACITY = (Integer.MAX_VALUE - HEADER_SIZE) / RECORD_SIZE;
+
+	private final Path dataPath;
+	private final Path indexPath;
+	private final FileChannel dataChannel;
+	private final FileChannel indexChannel;
+	private MappedByteBuffer data;
+	private MappedByteBuffer index;
+	private int capacity;
+	private int count;
+
+	Segment(Path dataPath, Path indexPath) throws IOException {
+		this.dataPath = dataPath;
+		this.indexPath = indexPath;
+		boolean exists = Files.exists(dataPath);
+		FileChannel dataFile = FileChannel.open(dataPath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		FileChannel indexFile;
+		try {
+			indexFile = FileChannel.open(indexPath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+					StandardOpenOption.WRITE);
+		} catch (IOException | RuntimeException e) {
+			try {
+				dataFile.close();
+			} catch (IOException x) {
+				e.addSuppressed(x);
+			}
+			throw e;
+		}
+		dataChannel = dataFile;
+		indexChannel = indexFile;
+		try {
+			if (exists) {
+				if (dataChannel.size() < HEADER_SIZE) {
+					throw new IOException(dataPath + " is too short to be a segment file");
+				}
+				long records = (dataChannel.size() - HEADER_SIZE) / RECORD_SIZE;
+				if (records > MAX_CAPACITY) {
+					throw new IOException(dataPath + " is too large to be a segment file");
+				}
+				capacity = (int) records;
+				map();
+				if (data.getInt(0) != MAGIC || data.getInt(4) != VERSION) {
+					throw new IOException(dataPath + " is not a segment file");
+				}
+				long n = data.getLong(COUNT_OFFSET);
+				if (n < 0 || n > capacity) {
+					throw new IOException(dataPath + " has a bad record count " + n);
+				}
+				count = (int) n;
+			} else {
+				capacity = INITIAL_CAPACITY;
+				map();
+				data.putInt(0, MAGIC);
+				data.putInt(4, VERSION);
+				data.putLong(COUNT_OFFSET, 0);
+			}
+		} catch (IOException | RuntimeException e) {
+			data = null;
+			index = null;
+			try {
+				closeChannels();
+			} catch (IOException x) {
+				e.addSuppressed(x);
+			}
+			throw e;
+		}
+	}
+
+	private void map() throws IOException {
+		data = dataChannel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) capacity * RECORD_SIZE);
+		data.order(ByteOrder.LITTLE_ENDIAN);
+		index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, (long) (capacity / BLOCK_SIZE + 1) * 8);
+		index.order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	int getCount() {
+		return count;
+	}
+
+	long getLastTimestamp() {
+		return timestampAt(data, count - 1);
+	}
+
+	/**
+	 * Append a record; the caller checks the timestamp is not before the last
+	 * one.
+	 */
+	void append(long epochNanos, long value) throws IOException {
+		if (count == capacity) {
+			if (capacity >= MAX_CAPACITY) {
+				throw new IllegalStateException(dataPath + " is full");
+			}
+			capacity = (int) Math.min(MAX_CAPACITY, Math.max(INITIAL_CAPACITY, capacity * 2L));
+			map();
+		}
+		int offset = HEADER_SIZE + count * RECORD_SIZE;
+		data.putLong(offset, epochNanos);
+		data.putLong(offset + 8, value);
+		if (count % BLOCK_SIZE == 0) {
+			index.putLong(count / BLOCK_SIZE * 8, epochNanos);
+		}
+		count++;
+		data.putLong(COUNT_OFFSET, count);
+	}
+
+	/**
+	 * A read-only view of the records appended so far.
+	 */
+	View view() {
+		return new View(data, index, count);
+	}
+
+	void force() {
+		data.force();
+		index.force();
+	}
+
+	/**
+	 * Truncate the files to the records appended and close them.
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			data.force();
+			index.force();
+			dataChannel.truncate(HEADER_SIZE + (long) count * RECORD_SIZE);
+			indexChannel.truncate((long) (count + BLOCK_SIZE - 1) / BLOCK_SIZE * 8);
+		} finally {
+			data = null;
+			index = null;
+			closeChannels();
+		}
+	}
+
+	void delete() throws IOException {
+		data = null;
+		index = null;
+		closeChannels();
+		delete(dataPath, indexPath);
+	}
+
+	/**
+	 * Delete the files of a segment that is not open.
+	 */
+	static void delete(Path dataPath, Path indexPath) throws IOException {
+		Files.deleteIfExists(dataPath);
+		Files.deleteIfExists(indexPath);
+	}
+
+	private void closeChannels() throws IOException {
+		try {
+			dataChannel.close();
+		} finally {
+			indexChannel.close();
+		}
+	}
+
+	private static long timestampAt(MappedByteBuffer data, int i) {
+		return data.getLong(HEADER_SIZE + i * RECORD_SIZE);
+	}
+
+	static final class View {
+		private final MappedByteBuffer data;
+		private final MappedByteBuffer index;
+		private final int count;
+
+		View(MappedByteBuffer data, MappedByteBuffer index, int count) {
+			this.data = data;
+			this.index = index;
+			this.count = count;
+		}
+
+		int getCount() {
+			return count;
+		}
+
+		long timestampAt(int i) {
+			return Segment.timestampAt(data, i);
+		}
+
+		long valueAt(int i) {
+			return data.getLong(HEADER_SIZE + i * RECORD_SIZE + 8);
+		}
+
+		/**
+		 * Return the index of the first record with a timestamp at or after
+		 * <code>epochNanos</code>, or the count if there is none.
+		 */
+		int search(long epochNanos) {
+			// find the last block starting before epochNanos
+			int lo = 0;
+			int hi = (count + BLOCK_SIZE - 1) / BLOCK_SIZE - 1;
+			int block = 0;
+			while (lo <= hi) {
+				int mid = (lo + hi) >>> 1;
+				if (index.getLong(mid * 8) < epochNanos) {
+					block = mid;
+					lo = mid + 1;
+				} else {
+					hi = mid - 1;
+				}
+			}
+			lo = block * BLOCK_SIZE;
+			hi = Math.min(count, lo + BLOCK_SIZE);
+			while (lo < hi) {
+				int mid = (lo + hi) >>> 1;
+				if (timestampAt(mid) < epochNanos) {
+					lo = mid + 1;
+				} else {
+					hi = mid;
+				}
+			}
+			return lo;
+		}
+	}
+
+}
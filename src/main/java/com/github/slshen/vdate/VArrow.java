@@ -0,0 +1,403 @@
+package com.github.slshen.vdate;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.Period;
+import java.time.ZoneId;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Columns of V-types laid out in the
+ * <a href="https://arrow.apache.org/docs/format/Columnar.html">Apache Arrow
+ * columnar format</a>, so they can be handed to Arrow-based engines without
+ * going through strings.
+ *
+ * <p>
+ * Each column has a validity bitmap (least significant bit first, 1 for
+ * present) and a little-endian data buffer, both direct and padded to 64
+ * bytes:
+ * <ul>
+ * <li>{@link #dates} writes a <code>Date32</code> column of days since the
+ * epoch.
+ * <li>{@link #timestamps} writes a <code>Timestamp</code> column of 64 bit
+ * values in a unit, with an optional zone.
+ * <li>{@link #times} writes a <code>Time64</code> column of microseconds or
+ * nanoseconds since midnight.
+ * <li>{@link #intervals} writes an <code>Interval(MONTH_DAY_NANO)</code> column
+ * of 16 byte values: 32 bit months, 32 bit days and 64 bit nanoseconds, which
+ * correspond to the period and duration portions of a {@link VInterval}.
+ * </ul>
+ *
+ * <p>
+ * Columns are also read-only {@link List}s of the V-types that read values
+ * out of the buffers on demand, with <code>null</code> for missing values.
+ * Columns produced elsewhere can be read by wrapping their buffers with the
+ * column constructors; the buffers are not copied.
+ *
+ * <p>
+ * Reading through the lists creates a value per element. To scan a column
+ * without allocating, use the primitive getters (which return 0 for missing
+ * values written by this class), or read dates and timestamps into a reused
+ * {@link VDateTimeCursor}.
+ */
+public final class VArrow {
+
+	private static final int ALIGNMENT = 64;
+
+	private VArrow() {
+	}
+
+	/**
+	 * A column of values in an Arrow validity buffer and data buffer.
+	 */
+	public abstract static class Column<T> extends AbstractList<T> implements RandomAccess {
+		private final int length;
+		private final ByteBuffer validity;
+		final ByteBuffer data;
+		private final int nullCount;
+
+		Column(int length, ByteBuffer validity, ByteBuffer data, int width) {
+			if (length < 0) {
+				throw new IllegalArgumentException("negative length " + length);
+			}
+			if (validity != null && validity.remaining() < (length + 7) / 8) {
+				throw new IllegalArgumentException("validity buffer too small for " + length + " values");
+			}
+			if (data.remaining() < (long) length * width) {
+				throw new IllegalArgumentException("data buffer too small for " + length + " values");
+			}
+			this.length = length;
+			this.validity = validity == null ? null : validity.slice();
+			this.data = data.slice().order(ByteOrder.LITTLE_ENDIAN);
+			this.nullCount = this.validity == null ? 0 : countNulls(this.validity, length);
+		}
+
+		@Override
+		public int size() {
+			return length;
+		}
+
+		public int getNullCount() {
+			return nullCount;
+		}
+
+		public boolean isNull(int i) {
+			Objects.checkIndex(i, length);
+			return validity != null && (validity.get(i >>> 3) & (1 << (i & 7))) == 0;
+		}
+
+		/**
+		 * Return the validity buffer, or null if the column was wrapped without
+		 * one.
+		 */
+		public ByteBuffer getValidityBuffer() {
+			return validity == null ? null : validity.asReadOnlyBuffer();
+		}
+
+		public ByteBuffer getDataBuffer() {
+			return data.asReadOnlyBuffer().order(ByteOrder.LITTLE_ENDIAN);
+		}
+
+		@Override
+		public T get(int i) {
+			return isNull(i) ? null : value(i);
+		}
+
+		abstract T value(int i);
+	}
+
+	/**
+	 * An Arrow <code>Date32</code> column.
+	 */
+	public static final class DateColumn extends Column<VDate> {
+
+		public DateColumn(int length, ByteBuffer validity, ByteBuffer data) {
+			super(length, validity, data, 4);
+		}
+
+		public int getEpochDay(int i) {
+			Objects.checkIndex(i, size());
+			return data.getInt(i * 4);
+		}
+
+		/**
+		 * Set the date of a cursor to a value, keeping its local time.
+		 */
+		public VDateTimeCursor read(int i, VDateTimeCursor cursor) {
+			long packed = CivilCalendar.fromEpochDay(getEpochDay(i));
+			return cursor.setDate(CivilCalendar.year(packed), CivilCalendar.month(packed),
+					CivilCalendar.day(packed));
+		}
+
+		@Override
+		VDate value(int i) {
+			return VDate.ofEpochDay(data.getInt(i * 4));
+		}
+	}
+
+	/**
+	 * An Arrow <code>Timestamp</code> column.
+	 */
+	public static final class TimestampColumn extends Column<VTimestamp> {
+		private final TimeUnit unit;
+		private final ZoneId zoneId;
+		private final long perSecond;
+
+		/**
+		 * @param zoneId
+		 *            the zone of the column, or null if it has none
+		 */
+		public TimestampColumn(int length, ByteBuffer validity, ByteBuffer data, TimeUnit unit, ZoneId zoneId) {
+			super(length, validity, data, 8);
+			this.unit = unit;
+			this.zoneId = zoneId;
+			this.perSecond = perSecond(unit, false);
+		}
+
+		public TimeUnit getUnit() {
+			return unit;
+		}
+
+		public ZoneId getZoneId() {
+			return zoneId;
+		}
+
+		public long getLong(int i) {
+			Objects.checkIndex(i, size());
+			return data.getLong(i * 8);
+		}
+
+		public long getEpochSecond(int i) {
+			return Math.floorDiv(getLong(i), perSecond);
+		}
+
+		public int getNano(int i) {
+			return (int) (Math.floorMod(getLong(i), perSecond) * (1_000_000_000L / perSecond));
+		}
+
+		/**
+		 * Move a cursor to a value, keeping the cursor's zone.
+		 */
+		public VDateTimeCursor read(int i, VDateTimeCursor cursor) {
+			return cursor.set(getEpochSecond(i), getNano(i));
+		}
+
+		/**
+		 * Return a value as a date time in the column's zone, or in UTC if the
+		 * column has none.
+		 */
+		public VDateTime getDateTime(int i) {
+			VTimestamp timestamp = get(i);
+			return timestamp == null ? null : timestamp.toDateTime(zoneId == null ? VDateTime.UTC : zoneId);
+		}
+
+		@Override
+		VTimestamp value(int i) {
+			return new VTimestamp(Instant.ofEpochSecond(getEpochSecond(i), getNano(i)));
+		}
+	}
+
+	/**
+	 * An Arrow <code>Time64</code> column.
+	 */
+	public static final class TimeColumn extends Column<VTimeOfDay> {
+		private final TimeUnit unit;
+		private final long nanosPerUnit;
+
+		public TimeColumn(int length, ByteBuffer validity, ByteBuffer data, TimeUnit unit) {
+			super(length, validity, data, 8);
+			this.unit = unit;
+			this.nanosPerUnit = 1_000_000_000L / perSecond(unit, true);
+		}
+
+		public TimeUnit getUnit() {
+			return unit;
+		}
+
+		public long getLong(int i) {
+			Objects.checkIndex(i, size());
+			return data.getLong(i * 8);
+		}
+
+		public long getNanoOfDay(int i) {
+			return getLong(i) * nanosPerUnit;
+		}
+
+		@Override
+		VTimeOfDay value(int i) {
+			return VTimeOfDay.valueOf(LocalTime.ofNanoOfDay(getNanoOfDay(i)));
+		}
+	}
+
+	/**
+	 * An Arrow <code>Interval(MONTH_DAY_NANO)</code> column. Months are read
+	 * back as years and months, so <code>P14M</code> is read as
+	 * <code>P1Y2M</code>.
+	 */
+	public static final class IntervalColumn extends Column<VInterval> {
+
+		public IntervalColumn(int length, ByteBuffer validity, ByteBuffer data) {
+			super(length, validity, data, 16);
+		}
+
+		public int getMonths(int i) {
+			Objects.checkIndex(i, size());
+			return data.getInt(i * 16);
+		}
+
+		public int getDays(int i) {
+			Objects.checkIndex(i, size());
+			return data.getInt(i * 16 + 4);
+		}
+
+		public long getNanos(int i) {
+			Objects.checkIndex(i, size());
+			return data.getLong(i * 16 + 8);
+		}
+
+		@Override
+		VInterval value(int i) {
+			int months = getMonths(i);
+			return new VInterval(Period.of(months / 12, months % 12, getDays(i)), Duration.ofNanos(getNanos(i)));
+		}
+	}
+
+	public static DateColumn dates(List<VDate> values) {
+		int n = values.size();
+		ByteBuffer validity = validity(values);
+		ByteBuffer data = allocate((long) n * 4);
+		for (int i = 0; i < n; i++) {
+			VDate value = values.get(i);
+			if (value != null) {
+				data.putInt(i * 4, Math.toIntExact(value.toLocalDate().toEpochDay()));
+			}
+		}
+		return new DateColumn(n, validity, data);
+	}
+
+	/**
+	 * Write timestamps in a unit from seconds to nanoseconds, truncating any
+	 * finer precision.
+	 *
+	 * @param zoneId
+	 *            the zone to record for the column, or null for none
+	 * @throws ArithmeticException
+	 *             if a timestamp does not fit in 64 bits in the unit
+	 */
+	public static TimestampColumn timestamps(List<VTimestamp> values, TimeUnit unit, ZoneId zoneId) {
+		long perSecond = perSecond(unit, false);
+		long nanosPerUnit = 1_000_000_000L / perSecond;
+		int n = values.size();
+		ByteBuffer validity = validity(values);
+		ByteBuffer data = allocate((long) n * 8);
+		for (int i = 0; i < n; i++) {
+			VTimestamp value = values.get(i);
+			if (value != null) {
+				Instant instant = value.toInstant();
+				data.putLong(i * 8, Math.addExact(Math.multiplyExact(instant.getEpochSecond(), perSecond),
+						instant.getNano() / nanosPerUnit));
+			}
+		}
+		return new TimestampColumn(n, validity, data, unit, zoneId);
+	}
+
+	/**
+	 * Write times of day in microseconds or nanoseconds, truncating any finer
+	 * precision.
+	 */
+	public static TimeColumn times(List<VTimeOfDay> values, TimeUnit unit) {
+		long nanosPerUnit = 1_000_000_000L / perSecond(unit, true);
+		int n = values.size();
+		ByteBuffer validity = validity(values);
+		ByteBuffer data = allocate((long) n * 8);
+		for (int i = 0; i < n; i++) {
+			VTimeOfDay value = values.get(i);
+			if (value != null) {
+				data.putLong(i * 8, value.toLocalTime().toNanoOfDay() / nanosPerUnit);
+			}
+		}
+		return new TimeColumn(n, validity, data, unit);
+	}
+
+	/**
+	 * @throws ArithmeticException
+	 *             if the months, days or nanoseconds of an interval do not fit
+	 */
+	public static IntervalColumn intervals(List<VInterval> values) {
+		int n = values.size();
+		ByteBuffer validity = validity(values);
+		ByteBuffer data = allocate((long) n * 16);
+		for (int i = 0; i < n; i++) {
+			VInterval value = values.get(i);
+			if (value != null) {
+				Period period = value.getPeriod();
+				data.putInt(i * 16, Math.toIntExact(period.toTotalMonths()));
+				data.putInt(i * 16 + 4, period.getDays());
+				data.putLong(i * 16 + 8, value.getDuration().toNanos());
+			}
+		}
+		return new IntervalColumn(n, validity, data);
+	}
+
+	private static long perSecond(TimeUnit unit, boolean time64) {
+		Objects.requireNonNull(unit, "unit");
+		switch (unit) {
+		case SECONDS:
+		case MILLISECONDS:
+			// Time64 only has microseconds and nanoseconds
+			if (time64) {
+				break;
+			}
+			// fall through
+		case MICROSECONDS:
+		case NANOSECONDS:
+			return unit.convert(1, TimeUnit.SECONDS);
+		default:
+			break;
+		}
+		throw new IllegalArgumentException("unsupported unit " + unit);
+	}
+
+	private static ByteBuffer allocate(long size) {
+		long padded = (size + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+		if (padded > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("column too large");
+		}
+		return ByteBuffer.allocateDirect((int) padded).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	private static ByteBuffer validity(List<?> values) {
+		int n = values.size();
+		ByteBuffer validity = allocate((n + 7) / 8);
+		for (int i = 0; i < n; i += 8) {
+			int bits = 0;
+			for (int j = 0; j < 8 && i + j < n; j++) {
+				if (values.get(i + j) != null) {
+					bits |= 1 << j;
+				}
+			}
+			validity.put(i >>> 3, (byte) bits);
+		}
+		return validity;
+	}
+
+	private static int countNulls(ByteBuffer validity, int length) {
+		int present = 0;
+		int full = length >>> 3;
+		for (int i = 0; i < full; i++) {
+			present += Integer.bitCount(validity.get(i) & 0xff);
+		}
+		if ((length & 7) != 0) {
+			present += Integer.bitCount(validity.get(full) & ((1 << (length & 7)) - 1));
+		}
+		return length - present;
+	}
+
+}
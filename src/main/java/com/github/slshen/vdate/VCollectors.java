@@ -0,0 +1,319 @@
+package com.github.slshen.vdate;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
+import java.util.stream.Collector;
+
+/**
+ * {@link Collector}s that group elements by time: per local day or hour, into
+ * tumbling or sliding windows, and min/max/first/last by timestamp.
+ *
+ * <p>
+ * Elements are keyed by a {@link VTimestamp} extracted from each element.
+ * Internally the collectors accumulate into maps keyed by primitive epoch-day,
+ * hour or window numbers, so they neither create a {@link VDate} per element
+ * nor box keys, and accumulators from parallel streams are combined by merging
+ * the maps. The results are sorted maps keyed by {@link VDate} or by the
+ * {@link VDateTime} at which each window starts.
+ *
+ * <p>
+ * Window sizes are either a duration (e.g. 15 minutes), in which case windows
+ * are aligned to the epoch on the instant timeline, or a number of days or a
+ * number of months (or years), in which case windows are aligned to local
+ * midnight or the start of the month in the zone. Intervals mixing days and
+ * months, or a period and a duration, are not supported. Durations are
+ * computed in nanoseconds so instants must lie between the years 1677 and
+ * 2262.
+ */
+public final class VCollectors {
+
+	private static final Set<Collector.Characteristics> UNORDERED = Collections
+			.unmodifiableSet(EnumSet.of(Collector.Characteristics.UNORDERED));
+
+	private VCollectors() {
+	}
+
+	/**
+	 * Count elements per local day in the zone.
+	 */
+	public static <T> Collector<T, ?, SortedMap<VDate, Long>> countingByDay(
+			Function<? super T, VTimestamp> timestamp, ZoneId zoneId) {
+		return groupingByDay(timestamp, zoneId, counting());
+	}
+
+	/**
+	 * Count elements per local hour in the zone. During a DST overlap the two
+	 * occurrences of an hour are counted separately.
+	 */
+	public static <T> Collector<T, ?, SortedMap<VDateTime, Long>> countingByHour(
+			Function<? super T, VTimestamp> timestamp, ZoneId zoneId) {
+		return groupingByHour(timestamp, zoneId, counting());
+	}
+
+	public static <T, A, R> Collector<T, ?, SortedMap<VDate, R>> groupingByDay(
+			Function<? super T, VTimestamp> timestamp, ZoneId zoneId, Collector<? super T, A, R> downstream) {
+		Windows windows = new Windows(Windows.Unit.DAYS, 1, 1, zoneId);
+		return windowed(timestamp, windows, downstream, VDate::ofEpochDay);
+	}
+
+	public static <T, A, R> Collector<T, ?, SortedMap<VDateTime, R>> groupingByHour(
+			Function<? super T, VTimestamp> timestamp, ZoneId zoneId, Collector<? super T, A, R> downstream) {
+		Windows windows = new Windows(Windows.Unit.HOURS, 1, 1, zoneId);
+		return windowed(timestamp, windows, downstream, windows::start);
+	}
+
+	/**
+	 * Group elements into consecutive, non-overlapping windows of the given size.
+	 */
+	public static <T, A, R> Collector<T, ?, SortedMap<VDateTime, R>> tumbling(
+			Function<? super T, VTimestamp> timestamp, VInterval size, ZoneId zoneId,
+			Collector<? super T, A, R> downstream) {
+		return sliding(timestamp, size, size, zoneId, downstream);
+	}
+
+	/**
+	 * Group elements into windows of the given size that start every
+	 * <code>slide</code>. An element is in every window that contains it, so if
+	 * the slide is smaller than the size, windows overlap.
+	 */
+	public static <T, A, R> Collector<T, ?, SortedMap<VDateTime, R>> sliding(
+			Function<? super T, VTimestamp> timestamp, VInterval size, VInterval slide, ZoneId zoneId,
+			Collector<? super T, A, R> downstream) {
+		Windows windows = Windows.of(size, slide, zoneId);
+		return windowed(timestamp, windows, downstream, windows::start);
+	}
+
+	public static <T> Collector<T, ?, Optional<VTimestamp>> minTimestamp(Function<? super T, VTimestamp> timestamp) {
+		return best(timestamp, false, false, timestamp);
+	}
+
+	public static <T> Collector<T, ?, Optional<VTimestamp>> maxTimestamp(Function<? super T, VTimestamp> timestamp) {
+		return best(timestamp, true, false, timestamp);
+	}
+
+	/**
+	 * The element with the earliest timestamp. Of elements with the same
+	 * timestamp the first encountered wins.
+	 */
+	public static <T> Collector<T, ?, Optional<T>> first(Function<? super T, VTimestamp> timestamp) {
+		return best(timestamp, false, false, Function.identity());
+	}
+
+	/**
+	 * The element with the latest timestamp. Of elements with the same timestamp
+	 * the last encountered wins.
+	 */
+	public static <T> Collector<T, ?, Optional<T>> last(Function<? super T, VTimestamp> timestamp) {
+		return best(timestamp, true, true, Function.identity());
+	}
+
+	private static <T> Collector<T, long[], Long> counting() {
+		return Collector.of(() -> new long[1], (a, t) -> a[0]++, (a, b) -> {
+			a[0] += b[0];
+			return a;
+		}, a -> a[0], Collector.Characteristics.UNORDERED);
+	}
+
+	private static <T, A, R, K> Collector<T, ?, SortedMap<K, R>> windowed(Function<? super T, VTimestamp> timestamp,
+			Windows windows, Collector<? super T, A, R> downstream, LongFunction<K> key) {
+		Objects.requireNonNull(timestamp, "timestamp");
+		Supplier<A> supplier = downstream.supplier();
+		BiConsumer<A, ? super T> accumulator = downstream.accumulator();
+		BinaryOperator<A> combiner = downstream.combiner();
+		Function<A, R> finisher = downstream.finisher();
+		Supplier<Accumulator<A>> newAccumulator = () -> new Accumulator<>(windows);
+		BiConsumer<Accumulator<A>, T> accumulate = (acc, t) -> {
+			Instant instant = timestamp.apply(t).toInstant();
+			long position = windows.position(instant, acc.offsets);
+			long last = Math.floorDiv(position, windows.slide);
+			long first = Math.floorDiv(position - windows.size, windows.slide) + 1;
+			for (long k = first; k <= last; k++) {
+				accumulator.accept(acc.groups.computeIfAbsent(k, x -> supplier.get()), t);
+			}
+		};
+		BinaryOperator<Accumulator<A>> combine = (left, right) -> {
+			right.groups.forEach((k, a) -> {
+				A existing = left.groups.get(k);
+				left.groups.put(k, existing == null ? a : combiner.apply(existing, a));
+			});
+			return left;
+		};
+		Function<Accumulator<A>, SortedMap<K, R>> finish = acc -> {
+			SortedMap<K, R> result = new TreeMap<>();
+			acc.groups.forEach((k, a) -> result.put(key.apply(k), finisher.apply(a)));
+			return result;
+		};
+		if (downstream.characteristics().contains(Collector.Characteristics.UNORDERED)) {
+			return Collector.of(newAccumulator, accumulate, combine, finish, Collector.Characteristics.UNORDERED);
+		}
+		return Collector.of(newAccumulator, accumulate, combine, finish);
+	}
+
+	private static <T, R> Collector<T, ?, Optional<R>> best(Function<? super T, VTimestamp> timestamp,
+			boolean latest, boolean lastWins, Function<? super T, R> result) {
+		Objects.requireNonNull(timestamp, "timestamp");
+		BiConsumer<Best<T>, T> accumulate = (best, t) -> {
+			Instant instant = timestamp.apply(t).toInstant();
+			best.offer(t, instant.getEpochSecond(), instant.getNano(), latest, lastWins);
+		};
+		BinaryOperator<Best<T>> combine = (left, right) -> {
+			if (right.present) {
+				left.offer(right.value, right.second, right.nano, latest, lastWins);
+			}
+			return left;
+		};
+		Function<Best<T>, Optional<R>> finish = best -> best.present ? Optional.of(result.apply(best.value))
+				: Optional.empty();
+		return Collector.of(Best::new, accumulate, combine, finish);
+	}
+
+	private static class Accumulator<A> {
+		final LongHashMap<A> groups = new LongHashMap<>();
+		final OffsetWindow offsets;
+
+		Accumulator(Windows windows) {
+			offsets = new OffsetWindow(windows.zoneId.getRules());
+		}
+	}
+
+	private static class Best<T> {
+		T value;
+		long second;
+		int nano;
+		boolean present;
+
+		void offer(T t, long s, int n, boolean latest, boolean lastWins) {
+			if (present) {
+				int c = s != second ? Long.compare(s, second) : Integer.compare(n, nano);
+				if (latest ? (c < 0 || (c == 0 && !lastWins)) : (c > 0 || (c == 0 && !lastWins))) {
+					return;
+				}
+			}
+			value = t;
+			second = s;
+			nano = n;
+			present = true;
+		}
+	}
+
+	/**
+	 * Maps instants to positions on a line measured in some unit, and windows to
+	 * ranges <code>[k * slide, k * slide + size)</code> of that line.
+	 */
+	static class Windows {
+		enum Unit {
+			/** nanoseconds since the epoch */
+			NANOS,
+			/** local epoch-days */
+			DAYS,
+			/** local months since year 0 */
+			MONTHS,
+			/** epoch second at which the local hour starts, only with size 1 */
+			HOURS
+		}
+
+		final Unit unit;
+		final long size;
+		final long slide;
+		final ZoneId zoneId;
+
+		Windows(Unit unit, long size, long slide, ZoneId zoneId) {
+			Objects.requireNonNull(zoneId, "zoneId");
+			if (size <= 0 || slide <= 0) {
+				throw new IllegalArgumentException("window size and slide must be positive");
+			}
+			this.unit = unit;
+			this.size = size;
+			this.slide = slide;
+			this.zoneId = zoneId;
+		}
+
+		static Windows of(VInterval size, VInterval slide, ZoneId zoneId) {
+			Unit unit = unitOf(size);
+			if (unitOf(slide) != unit) {
+				throw new IllegalArgumentException("window size " + size + " and slide " + slide
+						+ " must both be durations, days or months");
+			}
+			return new Windows(unit, lengthOf(size, unit), lengthOf(slide, unit), zoneId);
+		}
+
+		private static Unit unitOf(VInterval interval) {
+			boolean duration = !interval.getDuration().isZero();
+			boolean days = interval.getDays() != 0;
+			boolean months = interval.getPeriod().toTotalMonths() != 0;
+			if (duration && !days && !months) {
+				return Unit.NANOS;
+			} else if (days && !duration && !months) {
+				return Unit.DAYS;
+			} else if (months && !duration && !days) {
+				return Unit.MONTHS;
+			}
+			throw new IllegalArgumentException(
+					"window interval must be a duration, a number of days or a number of months: " + interval);
+		}
+
+		private static long lengthOf(VInterval interval, Unit unit) {
+			switch (unit) {
+			case NANOS:
+				return interval.getDuration().toNanos();
+			case DAYS:
+				return interval.getDays();
+			default:
+				return interval.getPeriod().toTotalMonths();
+			}
+		}
+
+		long position(Instant instant, OffsetWindow offsets) {
+			long second = instant.getEpochSecond();
+			switch (unit) {
+			case NANOS:
+				return Math.addExact(Math.multiplyExact(second, 1_000_000_000L), instant.getNano());
+			case HOURS: {
+				int offset = offsets.offsetAt(second);
+				return Math.floorDiv(second + offset, 3600) * 3600 - offset;
+			}
+			default:
+				long day = Math.floorDiv(second + offsets.offsetAt(second), 86_400);
+				if (unit == Unit.DAYS) {
+					return day;
+				}
+				long packed = CivilCalendar.fromEpochDay(day);
+				return CivilCalendar.year(packed) * 12L + CivilCalendar.month(packed) - 1;
+			}
+		}
+
+		/**
+		 * Return the start of window <code>k</code>.
+		 */
+		VDateTime start(long k) {
+			long position = k * slide;
+			switch (unit) {
+			case NANOS:
+				return new VDateTime(Instant.ofEpochSecond(Math.floorDiv(position, 1_000_000_000L),
+						Math.floorMod(position, 1_000_000_000L)).atZone(zoneId));
+			case HOURS:
+				return new VDateTime(Instant.ofEpochSecond(position).atZone(zoneId));
+			case DAYS:
+				return new VDateTime(LocalDate.ofEpochDay(position).atStartOfDay(zoneId));
+			default:
+				return new VDateTime(ZonedDateTime.of(Math.toIntExact(Math.floorDiv(position, 12)),
+						(int) Math.floorMod(position, 12) + 1, 1, 0, 0, 0, 0, zoneId));
+			}
+		}
+	}
+
+}
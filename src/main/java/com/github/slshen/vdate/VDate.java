@@ -5,6 +5,7 @@ import java.time.LocalDate;
 import java.time.Period;
 import java.time.ZoneOffset;
 import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoField;
 import java.time.temporal.ChronoUnit;
 import java.util.Date;
 import java.util.Objects;
@@ -31,7 +32,42 @@ public class VDate implements Comparable<VDate>, Serializable {
 		this(parse(ymd));
 	}
 
+	/**
+	 * Return a date, which is shared if {@link VIntern} is interning dates.
+	 */
+	public static VDate valueOf(LocalDate localDate) {
+		VDate date = VIntern.date(epochDayOf(localDate));
+		return date != null ? date : new VDate(localDate);
+	}
+
+	/**
+	 * Return the date of a day since 1970-01-01, which is shared if
+	 * {@link VIntern} is interning dates.
+	 */
+	public static VDate ofEpochDay(long epochDay) {
+		VDate date = VIntern.date(epochDay);
+		if (date != null) {
+			return date;
+		}
+		long packed = CivilCalendar.fromEpochDay(ChronoField.EPOCH_DAY.checkValidValue(epochDay));
+		return new VDate(LocalDate.of(CivilCalendar.year(packed), CivilCalendar.month(packed),
+				CivilCalendar.day(packed)));
+	}
+
+	public static VDate valueOf(int year, int month, int day) {
+		return valueOf(LocalDate.of(year, month, day));
+	}
+
+	public static VDate valueOf(CharSequence text) {
+		return valueOf(parse(text));
+	}
+
 	public static LocalDate parse(CharSequence text) {
+		return VMetrics.parse(VMetrics.Counter.DATE_PARSE, VMetrics.Counter.DATE_PARSE_FAILURE, text,
+				VDate::parseDate);
+	}
+
+	private static LocalDate parseDate(CharSequence text) {
 		Matcher m = DATE_PATTERN.matcher(text);
 		return extract(m).orElseThrow(() -> new DateTimeParseException("not a date", text, 0));
 	}
@@ -73,11 +109,14 @@ public class VDate implements Comparable<VDate>, Serializable {
 	}
 
 	public VDate plusDays(long days) {
-		return new VDate(localDate.plusDays(days));
+		if (days == 0) {
+			return this;
+		}
+		return ofEpochDay(Math.addExact(epochDayOf(localDate), days));
 	}
 
 	public VDate minusDays(long days) {
-		return new VDate(localDate.minusDays(days));
+		return days == Long.MIN_VALUE ? plusDays(Long.MAX_VALUE).plusDays(1) : plusDays(-days);
 	}
 
 	public VDate plusWeeks(long weeks) {
@@ -105,7 +144,7 @@ public class VDate implements Comparable<VDate>, Serializable {
 	}
 
 	public long daysBetween(VDate d) {
-		return ChronoUnit.DAYS.between(localDate, d.localDate);
+		return epochDayOf(d.localDate) - epochDayOf(localDate);
 	}
 
 	public long monthsBetween(VDate d) {
@@ -142,6 +181,15 @@ public class VDate implements Comparable<VDate>, Serializable {
 		return new VDate(localDate.minus(interval.getPeriod()));
 	}
 
+	private Object readResolve() {
+		VDate date = VIntern.date(epochDayOf(localDate));
+		return date != null ? date : this;
+	}
+
+	private static long epochDayOf(LocalDate localDate) {
+		return CivilCalendar.toEpochDay(localDate.getYear(), localDate.getMonthValue(), localDate.getDayOfMonth());
+	}
+
 	@Override
 	public int hashCode() {
 		return localDate.hashCode();
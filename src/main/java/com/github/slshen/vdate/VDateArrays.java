@@ -0,0 +1,160 @@
+package com.github.slshen.vdate;
+
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Bulk date arithmetic on columns of epoch-days (see
+ * {@link LocalDate#toEpochDay()}), with the same results as the corresponding
+ * {@link VDate} methods but without creating objects.
+ *
+ * <p>
+ * Each operation reads <code>src</code> and writes the results to the same
+ * positions of <code>dst</code>, which may be the same array. The loops are
+ * plain counted loops over primitive arrays using the calendar math in
+ * {@link CivilCalendar}, and large arrays are split across a
+ * {@link ForkJoinPool}.
+ *
+ * <p>
+ * Results that do not fit in an int throw {@link ArithmeticException}.
+ */
+public class VDateArrays {
+
+	private final ForkJoinPool pool;
+
+	/**
+	 * Create an instance that runs large arrays on the common pool.
+	 */
+	public VDateArrays() {
+		this(ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * @param pool
+	 *            the pool to run large arrays on, or <code>null</code> to always
+	 *            run on the calling thread
+	 */
+	public VDateArrays(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	public void plusDays(int[] src, long days, int[] dst) {
+		check(src, dst);
+		Parallel.forEachRange(pool, src.length, (from, to) -> {
+			for (int i = from; i < to; i++) {
+				dst[i] = Math.toIntExact(src[i] + days);
+			}
+		});
+	}
+
+	public void plusMonths(int[] src, long months, int[] dst) {
+		check(src, dst);
+		Parallel.forEachRange(pool, src.length, (from, to) -> {
+			for (int i = from; i < to; i++) {
+				dst[i] = Math.toIntExact(CivilCalendar.plusMonths(src[i], months));
+			}
+		});
+	}
+
+	public void plusYears(int[] src, long years, int[] dst) {
+		plusMonths(src, Math.multiplyExact(years, 12), dst);
+	}
+
+	/**
+	 * Add the {@link Period} portion of the interval, as in
+	 * {@link VDate#plusInterval(VInterval)}.
+	 */
+	public void plusInterval(int[] src, VInterval interval, int[] dst) {
+		Period period = interval.getPeriod();
+		plus(src, period.toTotalMonths(), period.getDays(), dst);
+	}
+
+	public void minusInterval(int[] src, VInterval interval, int[] dst) {
+		Period period = interval.getPeriod();
+		plus(src, Math.negateExact(period.toTotalMonths()), -(long) period.getDays(), dst);
+	}
+
+	private void plus(int[] src, long months, long days, int[] dst) {
+		check(src, dst);
+		Parallel.forEachRange(pool, src.length, (from, to) -> {
+			for (int i = from; i < to; i++) {
+				dst[i] = Math.toIntExact(CivilCalendar.plusMonths(src[i], months) + days);
+			}
+		});
+	}
+
+	/**
+	 * Days from <code>base</code> to each date, as in
+	 * {@link VDate#daysBetween(VDate)}.
+	 */
+	public void daysBetween(VDate base, int[] src, int[] dst) {
+		check(src, dst);
+		long start = base.toLocalDate().toEpochDay();
+		Parallel.forEachRange(pool, src.length, (from, to) -> {
+			for (int i = from; i < to; i++) {
+				dst[i] = Math.toIntExact(src[i] - start);
+			}
+		});
+	}
+
+	/**
+	 * Whole months from <code>base</code> to each date, as in
+	 * {@link VDate#monthsBetween(VDate)}.
+	 */
+	public void monthsBetween(VDate base, int[] src, int[] dst) {
+		check(src, dst);
+		long start = base.toLocalDate().toEpochDay();
+		Parallel.forEachRange(pool, src.length, (from, to) -> {
+			for (int i = from; i < to; i++) {
+				dst[i] = (int) CivilCalendar.monthsBetween(start, src[i]);
+			}
+		});
+	}
+
+	/**
+	 * The ISO day of week of each date, 1 (Monday) through 7 (Sunday).
+	 */
+	public void dayOfWeek(int[] src, int[] dst) {
+		check(src, dst);
+		Parallel.forEachRange(pool, src.length, (from, to) -> {
+			for (int i = from; i < to; i++) {
+				dst[i] = CivilCalendar.dayOfWeek(src[i]);
+			}
+		});
+	}
+
+	/**
+	 * The last day of the month of each date.
+	 */
+	public void endOfMonth(int[] src, int[] dst) {
+		check(src, dst);
+		Parallel.forEachRange(pool, src.length, (from, to) -> {
+			for (int i = from; i < to; i++) {
+				dst[i] = Math.toIntExact(CivilCalendar.endOfMonth(src[i]));
+			}
+		});
+	}
+
+	/**
+	 * Return the epoch-day of each date.
+	 */
+	public static int[] toEpochDays(VDate... dates) {
+		int[] days = new int[dates.length];
+		for (int i = 0; i < dates.length; i++) {
+			days[i] = Math.toIntExact(dates[i].toLocalDate().toEpochDay());
+		}
+		return days;
+	}
+
+	public static VDate toDate(int epochDay) {
+		return VDate.ofEpochDay(epochDay);
+	}
+
+	private static void check(int[] src, int[] dst) {
+		if (dst.length < src.length) {
+			throw new IllegalArgumentException("dst is shorter than src");
+		}
+	}
+
+}
@@ -58,6 +58,11 @@ a	 * @param text
 	}
 
 	public static ZonedDateTime parse(CharSequence text) {
+		return VMetrics.parse(VMetrics.Counter.DATE_TIME_PARSE, VMetrics.Counter.DATE_TIME_PARSE_FAILURE, text,
+				VDateTime::parseDateTime);
+	}
+
+	private static ZonedDateTime parseDateTime(CharSequence text) {
 		// ZonedDateTime is picky about ISO datetime formats
 		Matcher d = VDate.DATE_PATTERN.matcher(text);
 		LocalDate date = VDate.extract(d).orElse(null);
@@ -72,7 +77,7 @@ a	 * @param text
 		Matcher z = ZONE_ID_PATTERN.matcher(text);
 		ZoneId zoneId = DEFAULT_ZONE;
 		if (z.lookingAt()) {
-			zoneId = ZoneId.of(z.group(1));
+			zoneId = VZones.resolve(text, z.start(1), z.end(1));
 		}
 		return ZonedDateTime.of(date != null ? date : LocalDate.now(), time != null ? time : LocalTime.MIDNIGHT,
 				zoneId);
@@ -91,11 +96,11 @@ a	 * @param text
 	}
 
 	public VDate getDate() {
-		return new VDate(dateTime.toLocalDate());
+		return VDate.valueOf(dateTime.toLocalDate());
 	}
 
 	public VTimeOfDay getTime() {
-		return new VTimeOfDay(dateTime.toLocalTime());
+		return VTimeOfDay.valueOf(dateTime.toLocalTime());
 	}
 
 	public ZoneId getZoneId() {
@@ -107,11 +112,15 @@ a	 * @param text
 	}
 
 	public VDateTime plusInterval(VInterval i) {
-		return new VDateTime(toZonedDateTime().plus(i.getPeriod()).plus(i.getDuration()));
+		ZonedDateTime result = toZonedDateTime().plus(i.getPeriod()).plus(i.getDuration());
+		VMetrics.arithmetic(dateTime, i, result);
+		return new VDateTime(result);
 	}
 
 	public VDateTime minusInterval(VInterval i) {
-		return new VDateTime(toZonedDateTime().minus(i.getPeriod()).minus(i.getDuration()));
+		ZonedDateTime result = toZonedDateTime().minus(i.getPeriod()).minus(i.getDuration());
+		VMetrics.arithmetic(dateTime, i, result);
+		return new VDateTime(result);
 	}
 
 	public VInterval intervalBetween(VDateTime dateTime) {
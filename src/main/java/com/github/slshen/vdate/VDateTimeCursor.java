@@ -0,0 +1,358 @@
+package com.github.slshen.vdate;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoField;
+import java.util.Objects;
+
+/**
+ * A mutable date-time in a zone, for loops that walk calendars or read many
+ * fields without creating an object per step.
+ *
+ * <p>
+ * The cursor holds the instant, the local date and time and the offset as
+ * primitives. Arithmetic follows {@link VDateTime#plusInterval}: the period
+ * portion of an interval moves the local date (keeping the current offset if
+ * the result is ambiguous, and moving forward by the length of the gap if the
+ * result is skipped) and the duration portion moves the instant. Objects are
+ * only created by the <code>to</code> methods, and when a local result falls
+ * within a couple of days of a zone transition, where the zone's rules are
+ * consulted.
+ *
+ * <p>
+ * Instances are not thread-safe. Operations that would move the cursor out of
+ * the range of {@link LocalDate} throw {@link DateTimeException} and leave it
+ * unchanged.
+ */
+public class VDateTimeCursor {
+
+	private static final long SECONDS_PER_DAY = 86_400;
+	private static final long NANOS_PER_SECOND = 1_000_000_000L;
+	private static final long NANOS_PER_HOUR = 3_600 * NANOS_PER_SECOND;
+	// farther than any two offsets are apart
+	private static final long MARGIN = 2 * SECONDS_PER_DAY;
+
+	private ZoneId zoneId;
+	private OffsetWindow window;
+	private long epochSecond;
+	private int nano;
+	private int offset;
+	private long epochDay;
+	private long nanoOfDay;
+
+	/**
+	 * Create a cursor at the epoch.
+	 */
+	public VDateTimeCursor(ZoneId zoneId) {
+		setZone(zoneId);
+		setInstant(0, 0);
+	}
+
+	public VDateTimeCursor(VDateTime dateTime) {
+		this(dateTime.getZoneId());
+		set(dateTime);
+	}
+
+	public VDateTimeCursor(VTimestamp timestamp, ZoneId zoneId) {
+		this(zoneId);
+		set(timestamp);
+	}
+
+	/**
+	 * Move to a date-time, taking its zone.
+	 */
+	public VDateTimeCursor set(VDateTime dateTime) {
+		ZonedDateTime z = dateTime.toZonedDateTime();
+		if (!z.getZone().equals(zoneId)) {
+			setZone(z.getZone());
+		}
+		setInstant(z.toEpochSecond(), z.getNano());
+		return this;
+	}
+
+	/**
+	 * Move to an instant, keeping the zone.
+	 */
+	public VDateTimeCursor set(VTimestamp timestamp) {
+		Instant instant = timestamp.toInstant();
+		setInstant(instant.getEpochSecond(), instant.getNano());
+		return this;
+	}
+
+	/**
+	 * Move to an instant given as epoch seconds and nanos, keeping the zone.
+	 */
+	public VDateTimeCursor set(long epochSecond, int nanoOfSecond) {
+		ChronoField.NANO_OF_SECOND.checkValidValue(nanoOfSecond);
+		setInstant(epochSecond, nanoOfSecond);
+		return this;
+	}
+
+	/**
+	 * Change the zone, keeping the instant.
+	 */
+	public VDateTimeCursor setZoneId(ZoneId zoneId) {
+		setZone(zoneId);
+		setInstant(epochSecond, nano);
+		return this;
+	}
+
+	/**
+	 * Change the local date, keeping the local time.
+	 */
+	public VDateTimeCursor setDate(int year, int month, int day) {
+		ChronoField.YEAR.checkValidValue(year);
+		ChronoField.MONTH_OF_YEAR.checkValidValue(month);
+		ChronoField.DAY_OF_MONTH.checkValidValue(day);
+		if (day > CivilCalendar.lengthOfMonth(year, month)) {
+			throw new DateTimeException("Invalid date " + year + "-" + month + "-" + day);
+		}
+		resolveLocal(CivilCalendar.toEpochDay(year, month, day), nanoOfDay, offset);
+		return this;
+	}
+
+	/**
+	 * Change the local time, keeping the local date.
+	 */
+	public VDateTimeCursor setTime(int hour, int minute, int second, int nanoOfSecond) {
+		ChronoField.HOUR_OF_DAY.checkValidValue(hour);
+		ChronoField.MINUTE_OF_HOUR.checkValidValue(minute);
+		ChronoField.SECOND_OF_MINUTE.checkValidValue(second);
+		ChronoField.NANO_OF_SECOND.checkValidValue(nanoOfSecond);
+		resolveLocal(epochDay, (hour * 3_600L + minute * 60 + second) * NANOS_PER_SECOND + nanoOfSecond, offset);
+		return this;
+	}
+
+	public ZoneId getZoneId() {
+		return zoneId;
+	}
+
+	public long getEpochSecond() {
+		return epochSecond;
+	}
+
+	public int getNano() {
+		return nano;
+	}
+
+	public int getOffsetSeconds() {
+		return offset;
+	}
+
+	public long getEpochDay() {
+		return epochDay;
+	}
+
+	public long getNanoOfDay() {
+		return nanoOfDay;
+	}
+
+	public int getYear() {
+		return CivilCalendar.year(CivilCalendar.fromEpochDay(epochDay));
+	}
+
+	public int getMonth() {
+		return CivilCalendar.month(CivilCalendar.fromEpochDay(epochDay));
+	}
+
+	public int getDay() {
+		return CivilCalendar.day(CivilCalendar.fromEpochDay(epochDay));
+	}
+
+	/**
+	 * ISO day of week, 1 (Monday) to 7 (Sunday).
+	 */
+	public int getDayOfWeek() {
+		return CivilCalendar.dayOfWeek(epochDay);
+	}
+
+	public int getHour() {
+		return (int) (nanoOfDay / NANOS_PER_HOUR);
+	}
+
+	public int getMinute() {
+		return (int) (nanoOfDay / (60 * NANOS_PER_SECOND) % 60);
+	}
+
+	public int getSecond() {
+		return (int) (nanoOfDay / NANOS_PER_SECOND % 60);
+	}
+
+	public VDateTimeCursor plusInterval(VInterval interval) {
+		plusLocal(interval.getPeriod().toTotalMonths(), interval.getDays());
+		plusInstant(interval.getSeconds(), interval.getNano());
+		return this;
+	}
+
+	public VDateTimeCursor minusInterval(VInterval interval) {
+		plusLocal(Math.negateExact(interval.getPeriod().toTotalMonths()), -(long) interval.getDays());
+		plusInstant(Math.negateExact(interval.getSeconds()), -interval.getNano());
+		return this;
+	}
+
+	public VDateTimeCursor plusYears(long years) {
+		plusLocal(Math.multiplyExact(years, 12), 0);
+		return this;
+	}
+
+	public VDateTimeCursor plusMonths(long months) {
+		plusLocal(months, 0);
+		return this;
+	}
+
+	public VDateTimeCursor plusDays(long days) {
+		plusLocal(0, days);
+		return this;
+	}
+
+	public VDateTimeCursor plusSeconds(long seconds) {
+		plusInstant(seconds, 0);
+		return this;
+	}
+
+	public VDateTimeCursor plusNanos(long nanos) {
+		plusInstant(0, nanos);
+		return this;
+	}
+
+	public VDateTimeCursor toStartOfDay() {
+		resolveLocal(epochDay, 0, offset);
+		return this;
+	}
+
+	public VDateTimeCursor toStartOfHour() {
+		resolveLocal(epochDay, nanoOfDay - nanoOfDay % NANOS_PER_HOUR, offset);
+		return this;
+	}
+
+	public VDateTimeCursor toStartOfMonth() {
+		resolveLocal(epochDay - getDay() + 1, 0, offset);
+		return this;
+	}
+
+	public VDateTimeCursor toStartOfYear() {
+		resolveLocal(CivilCalendar.toEpochDay(getYear(), 1, 1), 0, offset);
+		return this;
+	}
+
+	/**
+	 * Move to the next offset transition of the zone.
+	 *
+	 * @return false, leaving the cursor unchanged, if there is none
+	 */
+	public boolean toNextTransition() {
+		window.offsetAt(epochSecond);
+		long end = window.getEnd();
+		if (end == Long.MAX_VALUE) {
+			return false;
+		}
+		setInstant(end, 0);
+		return true;
+	}
+
+	/**
+	 * Move to the last offset transition of the zone before the cursor.
+	 *
+	 * @return false, leaving the cursor unchanged, if there is none
+	 */
+	public boolean toPreviousTransition() {
+		window.offsetAt(epochSecond);
+		long start = window.getStart();
+		if (start == epochSecond && nano == 0 && start != Long.MIN_VALUE) {
+			window.offsetAt(start - 1);
+			start = window.getStart();
+		}
+		if (start == Long.MIN_VALUE) {
+			return false;
+		}
+		setInstant(start, 0);
+		return true;
+	}
+
+	public VDate toDate() {
+		return VDate.ofEpochDay(epochDay);
+	}
+
+	public VTimeOfDay toTimeOfDay() {
+		return new VTimeOfDay(LocalTime.ofNanoOfDay(nanoOfDay));
+	}
+
+	public VDateTime toDateTime() {
+		return new VDateTime(ZonedDateTime.ofInstant(Instant.ofEpochSecond(epochSecond, nano), zoneId));
+	}
+
+	public VTimestamp toTimestamp() {
+		return new VTimestamp(Instant.ofEpochSecond(epochSecond, nano));
+	}
+
+	@Override
+	public String toString() {
+		return toDateTime().toString();
+	}
+
+	private void setZone(ZoneId zoneId) {
+		Objects.requireNonNull(zoneId, "zoneId");
+		this.zoneId = zoneId;
+		this.window = new OffsetWindow(zoneId.getRules());
+	}
+
+	private void plusLocal(long months, long days) {
+		if (months != 0 || days != 0) {
+			resolveLocal(Math.addExact(CivilCalendar.plusMonths(epochDay, months), days), nanoOfDay, offset);
+		}
+	}
+
+	private void plusInstant(long seconds, long nanos) {
+		if (seconds != 0 || nanos != 0) {
+			long s = Math.addExact(Math.addExact(epochSecond, seconds), Math.floorDiv(nanos, NANOS_PER_SECOND));
+			long n = nano + Math.floorMod(nanos, NANOS_PER_SECOND);
+			if (n >= NANOS_PER_SECOND) {
+				s = Math.addExact(s, 1);
+				n -= NANOS_PER_SECOND;
+			}
+			setInstant(s, (int) n);
+		}
+	}
+
+	private void setInstant(long epochSecond, int nano) {
+		int offset = window.offsetAt(epochSecond);
+		long local = epochSecond + offset;
+		long epochDay = ChronoField.EPOCH_DAY.checkValidValue(Math.floorDiv(local, SECONDS_PER_DAY));
+		this.epochSecond = epochSecond;
+		this.nano = nano;
+		this.offset = offset;
+		this.epochDay = epochDay;
+		this.nanoOfDay = Math.floorMod(local, SECONDS_PER_DAY) * NANOS_PER_SECOND + nano;
+	}
+
+	/**
+	 * Move to a local date and time, resolving it the way
+	 * {@link ZonedDateTime#ofLocal} does.
+	 */
+	private void resolveLocal(long epochDay, long nanoOfDay, int preferredOffset) {
+		ChronoField.EPOCH_DAY.checkValidValue(epochDay);
+		long local = epochDay * SECONDS_PER_DAY + nanoOfDay / NANOS_PER_SECOND;
+		int nano = (int) (nanoOfDay % NANOS_PER_SECOND);
+		int o = window.offsetAt(local - preferredOffset);
+		long s = local - o;
+		if (window.offsetAt(s) == o) {
+			long start = window.getStart();
+			long end = window.getEnd();
+			if ((start == Long.MIN_VALUE || s - start >= MARGIN) && (end == Long.MAX_VALUE || end - s > MARGIN)) {
+				// no other offset is valid this far from a transition
+				setInstant(s, nano);
+				return;
+			}
+		}
+		ZonedDateTime z = ZonedDateTime.ofLocal(LocalDateTime.ofEpochSecond(local, nano, ZoneOffset.UTC), zoneId,
+				ZoneOffset.ofTotalSeconds(preferredOffset));
+		setInstant(z.toEpochSecond(), nano);
+	}
+
+}
@@ -0,0 +1,75 @@
+package com.github.slshen.vdate;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR events emitted when {@link VMetrics#ENABLED} is on. Enable them in a
+ * recording by name, e.g. <code>com.github.slshen.vdate.Parse</code>.
+ */
+public final class VEvents {
+
+	private VEvents() {
+	}
+
+	@Name("com.github.slshen.vdate.Parse")
+	@Label("Parse")
+	@Category("VDate")
+	@Description("Parsing text into a date, time, datetime or timestamp")
+	public static final class Parse extends Event {
+		@Label("Type")
+		String type;
+
+		@Label("Length")
+		int length;
+
+		@Label("Success")
+		boolean success;
+
+		@Label("Failure")
+		String failure;
+	}
+
+	@Name("com.github.slshen.vdate.ZoneLookup")
+	@Label("Zone Lookup")
+	@Category("VDate")
+	@Description("Resolving a zone id while parsing")
+	public static final class ZoneLookup extends Event {
+		@Label("Zone Id")
+		String zoneId;
+
+		@Label("Success")
+		boolean success;
+	}
+
+	@Name("com.github.slshen.vdate.Conversion")
+	@Label("Timestamp Conversion")
+	@Category("VDate")
+	@Description("Converting a timestamp to a datetime in a zone")
+	public static final class Conversion extends Event {
+		@Label("Zone Id")
+		String zoneId;
+	}
+
+	@Name("com.github.slshen.vdate.DstCrossing")
+	@Label("DST Crossing")
+	@Category("VDate")
+	@Description("Interval arithmetic whose result has a different offset than its operand")
+	public static final class DstCrossing extends Event {
+		@Label("Zone Id")
+		String zoneId;
+
+		@Label("Interval")
+		String interval;
+
+		@Label("Offset Before")
+		int offsetBefore;
+
+		@Label("Offset After")
+		int offsetAfter;
+	}
+
+}
@@ -0,0 +1,159 @@
+package com.github.slshen.vdate;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Optional tables of shared {@link VDate} and {@link VTimeOfDay} instances,
+ * for data sets where a small number of distinct values account for most
+ * instances.
+ *
+ * <p>
+ * When turned on, {@link VDate#valueOf}, {@link VDate#ofEpochDay},
+ * {@link VDate#plusDays(long)}, {@link VDate#minusDays(long)},
+ * {@link VTimestamp#toDate}, {@link VDateTime#getDate()},
+ * {@link VDateArrays#toDate}, {@link VDateTimeCursor#toDate},
+ * {@link VZoneConverter.Columns#getDate}, {@link VCollectors#groupingByDay},
+ * {@link VTimeSeriesStore#getDates} and deserialization return the shared
+ * instance for dates in the configured range of years, and
+ * {@link VTimeOfDay#valueOf}, {@link VTimestamp#toTimeOfDay},
+ * {@link VDateTime#getTime()} and deserialization return the shared instance
+ * for times that fall on a whole minute (or second). Constructors always
+ * create new instances.
+ *
+ * <p>
+ * Interning is off by default. It can be turned on with
+ * {@link #internDates(int, int)} and {@link #internTimes(ChronoUnit)}, or by
+ * starting the JVM with e.g. <code>-Dvdate.intern.years=1970-2100</code> and
+ * <code>-Dvdate.intern.times=minutes</code>; a bad value for either property
+ * is logged and ignored.
+ */
+public final class VIntern {
+
+	/** the most years of dates that can be interned */
+	public static final int MAX_YEARS = 1000;
+
+	private static final class Dates {
+		final long firstDay;
+		final VDate[] dates;
+
+		Dates(long firstDay, VDate[] dates) {
+			this.firstDay = firstDay;
+			this.dates = dates;
+		}
+	}
+
+	private static final class Times {
+		final long nanosPerUnit;
+		final VTimeOfDay[] times;
+
+		Times(long nanosPerUnit, VTimeOfDay[] times) {
+			this.nanosPerUnit = nanosPerUnit;
+			this.times = times;
+		}
+	}
+
+	private static volatile Dates dates;
+	private static volatile Times times;
+
+	static {
+		configure(System.getProperty("vdate.intern.years"), System.getProperty("vdate.intern.times"));
+	}
+
+	private VIntern() {
+	}
+
+	/**
+	 * Share the dates of the years from <code>fromYear</code> to
+	 * <code>toYear</code> inclusive, replacing any previous range.
+	 */
+	public static void internDates(int fromYear, int toYear) {
+		if (fromYear > toYear || toYear - fromYear >= MAX_YEARS) {
+			throw new IllegalArgumentException("bad year range " + fromYear + "-" + toYear);
+		}
+		long firstDay = LocalDate.of(fromYear, 1, 1).toEpochDay();
+		int n = (int) (LocalDate.of(toYear, 12, 31).toEpochDay() - firstDay + 1);
+		VDate[] table = new VDate[n];
+		for (int i = 0; i < n; i++) {
+			table[i] = new VDate(LocalDate.ofEpochDay(firstDay + i));
+		}
+		dates = new Dates(firstDay, table);
+	}
+
+	/**
+	 * Share the times of day that fall on a whole {@link ChronoUnit#MINUTES} or
+	 * {@link ChronoUnit#SECONDS}.
+	 */
+	public static void internTimes(ChronoUnit resolution) {
+		if (resolution != ChronoUnit.MINUTES && resolution != ChronoUnit.SECONDS) {
+			throw new IllegalArgumentException("unsupported resolution " + resolution);
+		}
+		long nanosPerUnit = resolution.getDuration().toNanos();
+		int n = (int) (ChronoUnit.DAYS.getDuration().toNanos() / nanosPerUnit);
+		VTimeOfDay[] table = new VTimeOfDay[n];
+		for (int i = 0; i < n; i++) {
+			table[i] = new VTimeOfDay(LocalTime.ofNanoOfDay(i * nanosPerUnit));
+		}
+		times = new Times(nanosPerUnit, table);
+	}
+
+	/**
+	 * Turn interning on from the values of the system properties, logging and
+	 * skipping any that are bad.
+	 */
+	static void configure(String years, String resolution) {
+		if (years != null && !years.trim().isEmpty()) {
+			try {
+				int[] range = CivilCalendar.parseYears(years);
+				internDates(range[0], range[1]);
+			} catch (IllegalArgumentException | DateTimeException e) {
+				System.getLogger(VIntern.class.getName()).log(System.Logger.Level.WARNING,
+						"ignoring vdate.intern.years=" + years + ": " + e.getMessage());
+			}
+		}
+		if (resolution != null && !resolution.trim().isEmpty()) {
+			try {
+				internTimes(ChronoUnit.valueOf(resolution.trim().toUpperCase()));
+			} catch (IllegalArgumentException e) {
+				System.getLogger(VIntern.class.getName()).log(System.Logger.Level.WARNING,
+						"ignoring vdate.intern.times=" + resolution + ": " + e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Turn interning off and release the tables.
+	 */
+	public static void clear() {
+		dates = null;
+		times = null;
+	}
+
+	/**
+	 * Return the shared date for an epoch-day, or null if there is none.
+	 */
+	static VDate date(long epochDay) {
+		Dates d = dates;
+		if (d != null) {
+			long i = epochDay - d.firstDay;
+			if (i >= 0 && i < d.dates.length) {
+				return d.dates[(int) i];
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Return the shared time for a nano-of-day, or null if there is none.
+	 */
+	static VTimeOfDay time(long nanoOfDay) {
+		Times t = times;
+		if (t != null && nanoOfDay % t.nanosPerUnit == 0) {
+			return t.times[(int) (nanoOfDay / t.nanosPerUnit)];
+		}
+		return null;
+	}
+
+}
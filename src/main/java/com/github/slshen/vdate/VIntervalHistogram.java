@@ -0,0 +1,341 @@
+package com.github.slshen.vdate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A log-bucketed histogram of durations, in the style of HdrHistogram. Values
+ * are recorded in nanoseconds into buckets whose width grows with the value,
+ * so that every recorded value is kept to a fixed number of significant
+ * decimal digits.
+ *
+ * <p>
+ * Recording does not allocate and may be done concurrently from any number of
+ * threads: counts are kept in per-thread stripes which are summed when a
+ * {@link Snapshot} is taken. The number of stripes is limited so that a
+ * histogram uses at most about 1MB for counts, or one set of counts if that is
+ * larger. Snapshots are immutable and can be merged, e.g.
+ * to combine histograms from several hosts.
+ *
+ * <p>
+ * Durations larger than the highest trackable value are counted in the last
+ * bucket.
+ */
+public class VIntervalHistogram {
+
+	/**
+	 * The most counters (8 bytes each) that a histogram is striped across.
+	 */
+	static final int MAX_STRIPED_COUNTERS = 1 << 17;
+
+	private final int subBucketBits;
+	private final long highestTrackableNanos;
+	private final int bucketCount;
+	private final AtomicLongArray[] stripes;
+	private final int stripeMask;
+
+	/**
+	 * Create a histogram tracking durations up to one hour with 2 significant
+	 * digits.
+	 */
+	public VIntervalHistogram() {
+		this(VInterval.of(1, TimeUnit.HOURS), 2);
+	}
+
+	/**
+	 * @param highestTrackable
+	 *            the largest duration that is tracked exactly, must not have a
+	 *            period portion
+	 * @param significantDigits
+	 *            number of significant decimal digits to keep, 1 through 5
+	 */
+	public VIntervalHistogram(VInterval highestTrackable, int significantDigits) {
+		if (significantDigits < 1 || significantDigits > 5) {
+			throw new IllegalArgumentException("significantDigits must be between 1 and 5");
+		}
+		long highest = toNanos(highestTrackable);
+		if (highest < 1) {
+			throw new IllegalArgumentException("highestTrackable must be positive");
+		}
+		long largestSingleUnit = 2 * (long) Math.pow(10, significantDigits);
+		this.subBucketBits = 64 - Long.numberOfLeadingZeros(largestSingleUnit - 1);
+		this.highestTrackableNanos = highest;
+		this.bucketCount = indexOf(subBucketBits, highest) + 1;
+		int n = stripeCount(Runtime.getRuntime().availableProcessors(), bucketCount);
+		this.stripes = new AtomicLongArray[n];
+		for (int i = 0; i < n; i++) {
+			stripes[i] = new AtomicLongArray(bucketCount);
+		}
+		this.stripeMask = n - 1;
+	}
+
+	/**
+	 * Record a duration given in nanoseconds.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the duration is negative
+	 */
+	public void record(long nanos) {
+		if (nanos < 0) {
+			throw new IllegalArgumentException("negative duration " + nanos);
+		}
+		int index = nanos >= highestTrackableNanos ? bucketCount - 1 : indexOf(subBucketBits, nanos);
+		stripe().getAndIncrement(index);
+	}
+
+	/**
+	 * Record the time portion of an interval. The interval must not have a
+	 * period (years, months, days) portion since that has no fixed length.
+	 */
+	public void record(VInterval interval) {
+		record(toNanos(interval));
+	}
+
+	/**
+	 * Record the duration from <code>start</code> to <code>end</code>.
+	 */
+	public void record(VTimestamp start, VTimestamp end) {
+		Instant s = start.toInstant();
+		Instant e = end.toInstant();
+		record(Math.addExact(Math.multiplyExact(e.getEpochSecond() - s.getEpochSecond(), 1_000_000_000L),
+				e.getNano() - s.getNano()));
+	}
+
+	/**
+	 * Record the duration from <code>start</code> to <code>end</code>, see
+	 * {@link VTimeOfDay#nanosBetween(VTimeOfDay)}.
+	 */
+	public void record(VTimeOfDay start, VTimeOfDay end) {
+		record(start.nanosBetween(end));
+	}
+
+	/**
+	 * Take a snapshot of the counts recorded so far. Values recorded while the
+	 * snapshot is taken may or may not be included.
+	 */
+	public Snapshot snapshot() {
+		long[] counts = new long[bucketCount];
+		for (AtomicLongArray stripe : stripes) {
+			for (int i = 0; i < bucketCount; i++) {
+				counts[i] += stripe.get(i);
+			}
+		}
+		return new Snapshot(subBucketBits, highestTrackableNanos, counts);
+	}
+
+	/**
+	 * Return a snapshot of the counts recorded so far and reset the histogram.
+	 */
+	public Snapshot snapshotAndReset() {
+		long[] counts = new long[bucketCount];
+		for (AtomicLongArray stripe : stripes) {
+			for (int i = 0; i < bucketCount; i++) {
+				counts[i] += stripe.getAndSet(i, 0);
+			}
+		}
+		return new Snapshot(subBucketBits, highestTrackableNanos, counts);
+	}
+
+	public void reset() {
+		for (AtomicLongArray stripe : stripes) {
+			for (int i = 0; i < bucketCount; i++) {
+				stripe.set(i, 0);
+			}
+		}
+	}
+
+	/**
+	 * Return the number of counters, across all stripes.
+	 */
+	long getCounterCount() {
+		return (long) stripes.length * bucketCount;
+	}
+
+	/*
+	 * About two stripes per processor, a power of 2, but no more than fit in
+	 * MAX_STRIPED_COUNTERS. Histograms with more buckets than that have one
+	 * stripe, their recordings are spread over many counters anyway.
+	 */
+	static int stripeCount(int processors, int bucketCount) {
+		int n = Math.max(1, processors) * 2 - 1;
+		n = Math.min(n, Math.max(1, MAX_STRIPED_COUNTERS / bucketCount));
+		return Integer.highestOneBit(n);
+	}
+
+	private AtomicLongArray stripe() {
+		long id = Thread.currentThread().getId();
+		int h = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+		return stripes[(h ^ (h >>> 16)) & stripeMask];
+	}
+
+	private static long toNanos(VInterval interval) {
+		if (!interval.getPeriod().isZero()) {
+			throw new IllegalArgumentException("interval has a period portion: " + interval);
+		}
+		return interval.getDuration().toNanos();
+	}
+
+	/*
+	 * Values below 2^subBucketBits get a bucket of their own. Above that each
+	 * power of 2 is divided into 2^(subBucketBits-1) equal buckets.
+	 */
+	static int indexOf(int subBucketBits, long value) {
+		int shift = Math.max(0, 64 - Long.numberOfLeadingZeros(value) - subBucketBits);
+		return (shift << (subBucketBits - 1)) + (int) (value >>> shift);
+	}
+
+	static long lowestValueAt(int subBucketBits, int index) {
+		int half = 1 << (subBucketBits - 1);
+		if (index < 2 * half) {
+			return index;
+		}
+		int shift = index / half - 1;
+		return (long) (index - shift * half) << shift;
+	}
+
+	static long highestValueAt(int subBucketBits, int index) {
+		return lowestValueAt(subBucketBits, index + 1) - 1;
+	}
+
+	/**
+	 * An immutable point-in-time copy of a histogram's counts.
+	 */
+	public static class Snapshot {
+		private final int subBucketBits;
+		private final long highestTrackableNanos;
+		private final long[] counts;
+		private final long totalCount;
+
+		Snapshot(int subBucketBits, long highestTrackableNanos, long[] counts) {
+			this.subBucketBits = subBucketBits;
+			this.highestTrackableNanos = highestTrackableNanos;
+			this.counts = counts;
+			long total = 0;
+			for (long c : counts) {
+				total += c;
+			}
+			this.totalCount = total;
+		}
+
+		/**
+		 * Return a new snapshot with the counts of both snapshots. Both must come
+		 * from histograms constructed with the same parameters.
+		 */
+		public Snapshot merge(Snapshot other) {
+			if (subBucketBits != other.subBucketBits || highestTrackableNanos != other.highestTrackableNanos) {
+				throw new IllegalArgumentException("histograms have different bucket layouts");
+			}
+			long[] merged = counts.clone();
+			for (int i = 0; i < merged.length; i++) {
+				merged[i] += other.counts[i];
+			}
+			return new Snapshot(subBucketBits, highestTrackableNanos, merged);
+		}
+
+		public long getTotalCount() {
+			return totalCount;
+		}
+
+		/**
+		 * Return the duration at or below which the given percentage of the
+		 * recorded durations fall, or {@link VInterval#ZERO} if nothing was
+		 * recorded.
+		 *
+		 * @param percentile
+		 *            a value between 0 and 100
+		 */
+		public VInterval getValueAtPercentile(double percentile) {
+			return new VInterval(Duration.ofNanos(getNanosAtPercentile(percentile)));
+		}
+
+		public long getNanosAtPercentile(double percentile) {
+			if (percentile < 0 || percentile > 100 || Double.isNaN(percentile)) {
+				throw new IllegalArgumentException("percentile must be between 0 and 100");
+			}
+			if (totalCount == 0) {
+				return 0;
+			}
+			long target = Math.max(1, (long) Math.ceil(percentile / 100 * totalCount));
+			long seen = 0;
+			for (int i = 0; i < counts.length; i++) {
+				seen += counts[i];
+				if (seen >= target) {
+					return valueAt(i);
+				}
+			}
+			return valueAt(counts.length - 1);
+		}
+
+		/**
+		 * Return the mean of the recorded durations, computed from the bucket
+		 * midpoints.
+		 */
+		public VInterval getMean() {
+			return new VInterval(Duration.ofNanos(getMeanNanos()));
+		}
+
+		public long getMeanNanos() {
+			if (totalCount == 0) {
+				return 0;
+			}
+			double sum = 0;
+			for (int i = 0; i < counts.length; i++) {
+				if (counts[i] != 0) {
+					long low = lowestValueAt(subBucketBits, i);
+					sum += counts[i] * (low + (valueAt(i) - low) / 2.0);
+				}
+			}
+			return Math.round(sum / totalCount);
+		}
+
+		public VInterval getMin() {
+			for (int i = 0; i < counts.length; i++) {
+				if (counts[i] != 0) {
+					return new VInterval(Duration.ofNanos(lowestValueAt(subBucketBits, i)));
+				}
+			}
+			return VInterval.ZERO;
+		}
+
+		public VInterval getMax() {
+			for (int i = counts.length - 1; i >= 0; i--) {
+				if (counts[i] != 0) {
+					return new VInterval(Duration.ofNanos(valueAt(i)));
+				}
+			}
+			return VInterval.ZERO;
+		}
+
+		private long valueAt(int index) {
+			return index == counts.length - 1 ? highestTrackableNanos : highestValueAt(subBucketBits, index);
+		}
+
+		@Override
+		public int hashCode() {
+			return Arrays.hashCode(counts);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (obj == null)
+				return false;
+			if (!(obj instanceof Snapshot))
+				return false;
+			Snapshot other = (Snapshot) obj;
+			return subBucketBits == other.subBucketBits && highestTrackableNanos == other.highestTrackableNanos
+					&& Arrays.equals(counts, other.counts);
+		}
+
+		@Override
+		public String toString() {
+			return "count=" + totalCount + " p50=" + getValueAtPercentile(50) + " p99=" + getValueAtPercentile(99)
+					+ " max=" + getMax();
+		}
+	}
+
+}
@@ -0,0 +1,187 @@
+package com.github.slshen.vdate;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Optional instrumentation of parsing, zone lookups and conversions.
+ *
+ * <p>
+ * Instrumentation is turned on by starting the JVM with
+ * <code>-Dvdate.metrics=true</code>. When it is off, {@link #ENABLED} is a
+ * constant <code>false</code> and the JIT removes the instrumentation
+ * entirely. When it is on, the counters below are incremented and the JFR
+ * events in {@link VEvents} are emitted (they are only recorded if a JFR
+ * recording has them enabled.)
+ *
+ * <p>
+ * Exporters can poll {@link #snapshot()} or {@link #get(Counter)}.
+ */
+public final class VMetrics {
+
+	public static final boolean ENABLED = Boolean.getBoolean("vdate.metrics");
+
+	public enum Counter {
+		DATE_PARSE,
+		DATE_PARSE_FAILURE,
+		TIME_PARSE,
+		TIME_PARSE_FAILURE,
+		DATE_TIME_PARSE,
+		DATE_TIME_PARSE_FAILURE,
+		TIMESTAMP_PARSE,
+		TIMESTAMP_PARSE_FAILURE,
+		ZONE_LOOKUP,
+		ZONE_LOOKUP_FAILURE,
+		ZONE_CACHE_MISS,
+		TIMESTAMP_CONVERSION,
+		DST_CROSSING;
+
+		private final String key = name().toLowerCase().replace('_', '.');
+
+		/**
+		 * Return the name of the counter for exporters, e.g.
+		 * <code>date.parse.failure</code>.
+		 */
+		public String getKey() {
+			return key;
+		}
+	}
+
+	private static final LongAdder[] COUNTERS = new LongAdder[Counter.values().length];
+
+	static {
+		for (int i = 0; i < COUNTERS.length; i++) {
+			COUNTERS[i] = new LongAdder();
+		}
+	}
+
+	private VMetrics() {
+	}
+
+	public static long get(Counter counter) {
+		return COUNTERS[counter.ordinal()].sum();
+	}
+
+	/**
+	 * Return the current value of all counters, keyed by
+	 * {@link Counter#getKey()}.
+	 */
+	public static Map<String, Long> snapshot() {
+		Map<String, Long> values = new LinkedHashMap<>();
+		for (Counter counter : Counter.values()) {
+			values.put(counter.getKey(), get(counter));
+		}
+		return Collections.unmodifiableMap(values);
+	}
+
+	public static void reset() {
+		for (LongAdder counter : COUNTERS) {
+			counter.reset();
+		}
+	}
+
+	static void increment(Counter counter) {
+		COUNTERS[counter.ordinal()].increment();
+	}
+
+	static <T> T parse(Counter counter, Counter failure, CharSequence text, Function<CharSequence, T> parser) {
+		if (!ENABLED) {
+			return parser.apply(text);
+		}
+		VEvents.Parse event = new VEvents.Parse();
+		event.begin();
+		try {
+			T result = parser.apply(text);
+			event.success = true;
+			return result;
+		} catch (RuntimeException e) {
+			increment(failure);
+			event.failure = e.getClass().getName();
+			throw e;
+		} finally {
+			increment(counter);
+			event.type = counter.getKey();
+			event.length = text.length();
+			event.commit();
+		}
+	}
+
+	static ZoneId zoneOf(String zoneId) {
+		if (!ENABLED) {
+			return ZoneId.of(zoneId);
+		}
+		VEvents.ZoneLookup event = new VEvents.ZoneLookup();
+		event.begin();
+		event.zoneId = zoneId;
+		try {
+			ZoneId zone = ZoneId.of(zoneId);
+			event.success = true;
+			return zone;
+		} catch (RuntimeException e) {
+			increment(Counter.ZONE_LOOKUP_FAILURE);
+			throw e;
+		} finally {
+			increment(Counter.ZONE_LOOKUP);
+			event.commit();
+		}
+	}
+
+	static ZonedDateTime atZone(Instant instant, ZoneId zoneId) {
+		if (!ENABLED) {
+			return instant.atZone(zoneId);
+		}
+		VEvents.Conversion event = new VEvents.Conversion();
+		event.begin();
+		try {
+			return instant.atZone(zoneId);
+		} finally {
+			increment(Counter.TIMESTAMP_CONVERSION);
+			event.zoneId = zoneId.getId();
+			event.commit();
+		}
+	}
+
+	/**
+	 * Return the offset in seconds of a zone at an instant, counted as a
+	 * conversion.
+	 */
+	static int offsetAt(Instant instant, ZoneId zoneId) {
+		if (!ENABLED) {
+			return zoneId.getRules().getOffset(instant).getTotalSeconds();
+		}
+		VEvents.Conversion event = new VEvents.Conversion();
+		event.begin();
+		try {
+			return zoneId.getRules().getOffset(instant).getTotalSeconds();
+		} finally {
+			increment(Counter.TIMESTAMP_CONVERSION);
+			event.zoneId = zoneId.getId();
+			event.commit();
+		}
+	}
+
+	/**
+	 * Called with the operands and result of interval arithmetic to count the
+	 * results that crossed an offset transition.
+	 */
+	static void arithmetic(ZonedDateTime from, VInterval interval, ZonedDateTime to) {
+		if (ENABLED && !from.getOffset().equals(to.getOffset())) {
+			increment(Counter.DST_CROSSING);
+			VEvents.DstCrossing event = new VEvents.DstCrossing();
+			if (event.shouldCommit()) {
+				event.zoneId = from.getZone().getId();
+				event.interval = interval.toString();
+				event.offsetBefore = from.getOffset().getTotalSeconds();
+				event.offsetAfter = to.getOffset().getTotalSeconds();
+				event.commit();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,512 @@
+package com.github.slshen.vdate;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Splits streams of timestamped events into sessions: runs of events, per
+ * key, in which consecutive events are no more than <code>gap</code> apart.
+ * When a session closes, a {@link Event.Type#SESSION} event is emitted, and if
+ * there was an earlier session for the same key, a {@link Event.Type#GAP} event
+ * for the quiet time between the two.
+ *
+ * <p>
+ * Events may arrive slightly out of order. The watermark trails the latest
+ * timestamp seen by <code>allowedLateness</code>; events older than the
+ * watermark (or belonging to a session that has already been emitted) are
+ * reported as {@link Event.Type#LATE} and otherwise ignored. A session is
+ * closed once the watermark has passed its end by more than <code>gap</code>;
+ * this is checked when the same key sees another event, when
+ * {@link #advanceWatermark} is called and on {@link #flush}.
+ * At most two open sessions are kept per key, so state is constant per key; if
+ * a third would be needed, the oldest of the three is closed early, and later
+ * events that would have joined it are reported as late. A key is forgotten
+ * once it has no open session and the watermark has passed its last session
+ * by more than <code>gap</code>; its late events are then caught by the
+ * watermark alone. Keys are kept in a heap ordered by when they next need
+ * attention, so advancing the watermark only visits the keys it affects.
+ *
+ * <p>
+ * Timestamps are handled as epoch nanos (years 1677 through 2262), and no
+ * objects are created per event except the emitted events. Instances are not
+ * thread-safe. Use {@link #sessions} to apply a sessionizer to a
+ * {@link Stream}, or {@link #processor} to get a {@link Flow.Processor}.
+ */
+public class VSessionizer<K> {
+
+	/**
+	 * A session, gap or late event.
+	 */
+	public static class Event<K> {
+		public enum Type {
+			SESSION, GAP, LATE
+		}
+
+		private final Type type;
+		private final K key;
+		private final long startNanos;
+		private final long endNanos;
+		private final long count;
+
+		Event(Type type, K key, long startNanos, long endNanos, long count) {
+			this.type = type;
+			this.key = key;
+			this.startNanos = startNanos;
+			this.endNanos = endNanos;
+			this.count = count;
+		}
+
+		public Type getType() {
+			return type;
+		}
+
+		public K getKey() {
+			return key;
+		}
+
+		/**
+		 * For a session, the timestamp of the first event. For a gap, the
+		 * timestamp of the last event before the gap. For a late event, its
+		 * timestamp.
+		 */
+		public VTimestamp getStart() {
+			return EpochNanos.toTimestamp(startNanos);
+		}
+
+		/**
+		 * For a session, the timestamp of the last event. For a gap, the timestamp
+		 * of the first event after the gap. For a late event, its timestamp.
+		 */
+		public VTimestamp getEnd() {
+			return EpochNanos.toTimestamp(endNanos);
+		}
+
+		public long getStartNanos() {
+			return startNanos;
+		}
+
+		public long getEndNanos() {
+			return endNanos;
+		}
+
+		public VInterval getInterval() {
+			return new VInterval(Duration.ofNanos(endNanos - startNanos));
+		}
+
+		/**
+		 * The number of events in a session, 0 for a gap and 1 for a late event.
+		 */
+		public long getCount() {
+			return count;
+		}
+
+		@Override
+		public String toString() {
+			return type + " " + key + " " + getStart() + " " + getEnd() + " " + count;
+		}
+	}
+
+	private static class State<K> {
+		final K key;
+		/** when the watermark next affects this key */
+		long expiry;
+		/** position in the heap */
+		int slot = -1;
+		boolean current;
+		long currentStart;
+		long currentEnd;
+		long currentCount;
+		boolean pending;
+		long pendingStart;
+		long pendingEnd;
+		long pendingCount;
+		boolean closed;
+		long lastEnd;
+
+		State(K key) {
+			this.key = key;
+		}
+	}
+
+	private final long gap;
+	private final long allowedLateness;
+	private final Consumer<? super Event<K>> output;
+	private final Map<K, State<K>> states = new HashMap<>();
+	@SuppressWarnings("unchecked")
+	private State<K>[] heap = new State[16];
+	private int heapSize;
+	private long watermark = Long.MIN_VALUE;
+
+	/**
+	 * @param gap
+	 *            the longest quiet time within a session, a duration
+	 * @param allowedLateness
+	 *            how far behind the latest timestamp events may be and still be
+	 *            included in sessions, a duration
+	 * @param output
+	 *            receives the session, gap and late events
+	 */
+	public VSessionizer(VInterval gap, VInterval allowedLateness, Consumer<? super Event<K>> output) {
+		Objects.requireNonNull(output, "output");
+		this.gap = EpochNanos.durationOf(gap, "gap");
+		this.allowedLateness = EpochNanos.durationOf(allowedLateness, "allowedLateness");
+		if (this.gap < 0 || this.allowedLateness < 0) {
+			throw new IllegalArgumentException("gap and allowedLateness must not be negative");
+		}
+		this.output = output;
+	}
+
+	public VSessionizer(VInterval gap, Consumer<? super Event<K>> output) {
+		this(gap, VInterval.ZERO, output);
+	}
+
+	public void accept(K key, VTimestamp timestamp) {
+		accept(key, EpochNanos.of(timestamp));
+	}
+
+	public void accept(K key, long epochNanos) {
+		long w = epochNanos - allowedLateness;
+		if (w <= epochNanos && w > watermark) {
+			watermark = w;
+		}
+		State<K> state = states.get(key);
+		if (epochNanos < watermark || (state != null && state.closed && epochNanos - gap <= state.lastEnd)) {
+			output.accept(new Event<>(Event.Type.LATE, key, epochNanos, epochNanos, 1));
+			return;
+		}
+		if (state == null) {
+			state = new State<>(key);
+			states.put(key, state);
+		}
+		add(key, state, epochNanos);
+		close(key, state);
+		schedule(state);
+	}
+
+	/**
+	 * Return the current watermark in epoch nanos.
+	 */
+	public long getWatermark() {
+		return watermark;
+	}
+
+	/**
+	 * Return the number of keys with open sessions, or whose last session is
+	 * still within <code>gap</code> of the watermark.
+	 */
+	public int getKeyCount() {
+		return states.size();
+	}
+
+	/**
+	 * Move the watermark forward, e.g. on a timer when the input is idle, close
+	 * the sessions that it has passed and forget idle keys.
+	 */
+	public void advanceWatermark(VTimestamp timestamp) {
+		advanceWatermark(EpochNanos.of(timestamp));
+	}
+
+	public void advanceWatermark(long epochNanos) {
+		if (epochNanos > watermark) {
+			watermark = epochNanos;
+		}
+		while (heapSize > 0 && heap[0].expiry <= watermark) {
+			State<K> state = heap[0];
+			close(state.key, state);
+			schedule(state);
+		}
+	}
+
+	/**
+	 * Close all open sessions, e.g. at the end of the input, and forget all keys.
+	 */
+	public void flush() {
+		states.forEach((key, state) -> {
+			if (state.pending) {
+				emitSession(key, state, state.pendingStart, state.pendingEnd, state.pendingCount);
+			}
+			if (state.current) {
+				emitSession(key, state, state.currentStart, state.currentEnd, state.currentCount);
+			}
+		});
+		states.clear();
+		Arrays.fill(heap, 0, heapSize, null);
+		heapSize = 0;
+	}
+
+	private void add(K key, State<K> s, long t) {
+		if (!s.current) {
+			s.current = true;
+			s.currentStart = s.currentEnd = t;
+			s.currentCount = 1;
+		} else if (near(t, s.currentStart, s.currentEnd)) {
+			s.currentStart = Math.min(s.currentStart, t);
+			s.currentEnd = Math.max(s.currentEnd, t);
+			s.currentCount++;
+			mergePending(s);
+		} else if (t > s.currentEnd) {
+			if (s.pending) {
+				emitSession(key, s, s.pendingStart, s.pendingEnd, s.pendingCount);
+			}
+			s.pending = true;
+			s.pendingStart = s.currentStart;
+			s.pendingEnd = s.currentEnd;
+			s.pendingCount = s.currentCount;
+			s.currentStart = s.currentEnd = t;
+			s.currentCount = 1;
+		} else if (!s.pending) {
+			s.pending = true;
+			s.pendingStart = s.pendingEnd = t;
+			s.pendingCount = 1;
+		} else if (near(t, s.pendingStart, s.pendingEnd)) {
+			s.pendingStart = Math.min(s.pendingStart, t);
+			s.pendingEnd = Math.max(s.pendingEnd, t);
+			s.pendingCount++;
+			mergePending(s);
+		} else if (t < s.pendingStart) {
+			// would need a third open session, the new one is the oldest
+			emitSession(key, s, t, t, 1);
+		} else {
+			// would need a third open session, close the pending one early
+			emitSession(key, s, s.pendingStart, s.pendingEnd, s.pendingCount);
+			s.pendingStart = s.pendingEnd = t;
+			s.pendingCount = 1;
+		}
+	}
+
+	private boolean near(long t, long start, long end) {
+		return t - gap <= end && t + gap >= start;
+	}
+
+	private void mergePending(State<K> s) {
+		if (s.pending && s.currentStart - s.pendingEnd <= gap) {
+			s.currentStart = s.pendingStart;
+			s.currentCount += s.pendingCount;
+			s.pending = false;
+		}
+	}
+
+	private void close(K key, State<K> s) {
+		if (s.pending && isFinal(s.pendingEnd)) {
+			emitSession(key, s, s.pendingStart, s.pendingEnd, s.pendingCount);
+			s.pending = false;
+		}
+		if (s.current && isFinal(s.currentEnd)) {
+			emitSession(key, s, s.currentStart, s.currentEnd, s.currentCount);
+			s.current = false;
+		}
+	}
+
+	private boolean isFinal(long end) {
+		return plusGap(end) <= watermark;
+	}
+
+	private void emitSession(K key, State<K> s, long start, long end, long count) {
+		if (s.closed && start - s.lastEnd > gap) {
+			output.accept(new Event<>(Event.Type.GAP, key, s.lastEnd, start, 0));
+		}
+		output.accept(new Event<>(Event.Type.SESSION, key, start, end, count));
+		s.closed = true;
+		s.lastEnd = end;
+	}
+
+	/**
+	 * Forget a key that is idle, or move it to its place in the heap. Called
+	 * after {@link #close}, so an open session's expiry is after the watermark.
+	 */
+	private void schedule(State<K> s) {
+		if (s.pending) {
+			s.expiry = plusGap(s.pendingEnd);
+		} else if (s.current) {
+			s.expiry = plusGap(s.currentEnd);
+		} else {
+			// forgotten once the watermark is past the gap after the last
+			// session, or can go no further
+			long expiry = plusGap(s.lastEnd);
+			if (expiry < watermark || watermark == Long.MAX_VALUE) {
+				states.remove(s.key);
+				removeFromHeap(s);
+				return;
+			}
+			s.expiry = expiry == Long.MAX_VALUE ? expiry : expiry + 1;
+		}
+		if (s.slot < 0) {
+			if (heapSize == heap.length) {
+				heap = Arrays.copyOf(heap, heapSize * 2);
+			}
+			s.slot = heapSize++;
+			heap[s.slot] = s;
+		}
+		siftDown(siftUp(s.slot));
+	}
+
+	private long plusGap(long end) {
+		return end > Long.MAX_VALUE - gap ? Long.MAX_VALUE : end + gap;
+	}
+
+	private void removeFromHeap(State<K> s) {
+		int i = s.slot;
+		if (i < 0) {
+			return;
+		}
+		s.slot = -1;
+		State<K> last = heap[--heapSize];
+		heap[heapSize] = null;
+		if (last != s) {
+			heap[i] = last;
+			last.slot = i;
+			siftDown(siftUp(i));
+		}
+	}
+
+	private int siftUp(int i) {
+		State<K> s = heap[i];
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (heap[parent].expiry <= s.expiry) {
+				break;
+			}
+			heap[i] = heap[parent];
+			heap[i].slot = i;
+			i = parent;
+		}
+		heap[i] = s;
+		s.slot = i;
+		return i;
+	}
+
+	private void siftDown(int i) {
+		State<K> s = heap[i];
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= heapSize) {
+				break;
+			}
+			if (child + 1 < heapSize && heap[child + 1].expiry < heap[child].expiry) {
+				child++;
+			}
+			if (s.expiry <= heap[child].expiry) {
+				break;
+			}
+			heap[i] = heap[child];
+			heap[i].slot = i;
+			i = child;
+		}
+		heap[i] = s;
+		s.slot = i;
+	}
+
+	/**
+	 * Return a stream of the session, gap and late events of a stream of events.
+	 * The returned stream is sequential and lazy; the last sessions are emitted
+	 * when the input is exhausted.
+	 */
+	public static <T, K> Stream<Event<K>> sessions(Stream<T> events, Function<? super T, K> key,
+			Function<? super T, VTimestamp> timestamp, VInterval gap, VInterval allowedLateness) {
+		ArrayDeque<Event<K>> buffer = new ArrayDeque<>();
+		VSessionizer<K> sessionizer = new VSessionizer<>(gap, allowedLateness, buffer::add);
+		Spliterator<T> source = events.spliterator();
+		Consumer<T> accept = t -> sessionizer.accept(key.apply(t), timestamp.apply(t));
+		Spliterator<Event<K>> spliterator = new Spliterators.AbstractSpliterator<Event<K>>(Long.MAX_VALUE,
+				Spliterator.ORDERED | Spliterator.NONNULL) {
+			private boolean done;
+
+			@Override
+			public boolean tryAdvance(Consumer<? super Event<K>> action) {
+				while (buffer.isEmpty()) {
+					if (done) {
+						return false;
+					}
+					if (!source.tryAdvance(accept)) {
+						sessionizer.flush();
+						done = true;
+					}
+				}
+				action.accept(buffer.poll());
+				return true;
+			}
+		};
+		return StreamSupport.stream(spliterator, false).onClose(events::close);
+	}
+
+	/**
+	 * Return a {@link Flow.Processor} that sessionizes the items it receives and
+	 * publishes the session, gap and late events. Upstream items are requested
+	 * in batches, and publishing blocks while subscribers are behind, which in
+	 * turn holds back upstream requests. The watermark is advanced with each
+	 * batch, so keys whose events stop have their sessions closed while other
+	 * keys' events arrive. Open sessions are published when the
+	 * upstream completes. If the key or timestamp function throws, the
+	 * subscription is cancelled and the processor closed with the exception.
+	 */
+	public static <T, K> Flow.Processor<T, Event<K>> processor(Function<? super T, K> key,
+			Function<? super T, VTimestamp> timestamp, VInterval gap, VInterval allowedLateness) {
+		return new SessionProcessor<>(key, timestamp, gap, allowedLateness);
+	}
+
+	private static class SessionProcessor<T, K> extends SubmissionPublisher<Event<K>>
+			implements Flow.Processor<T, Event<K>> {
+		private static final int BATCH = 64;
+		private final Function<? super T, K> key;
+		private final Function<? super T, VTimestamp> timestamp;
+		private final VSessionizer<K> sessionizer;
+		private Flow.Subscription subscription;
+		private int received;
+
+		SessionProcessor(Function<? super T, K> key, Function<? super T, VTimestamp> timestamp, VInterval gap,
+				VInterval allowedLateness) {
+			this.key = key;
+			this.timestamp = timestamp;
+			this.sessionizer = new VSessionizer<>(gap, allowedLateness, this::submit);
+		}
+
+		@Override
+		public void onSubscribe(Flow.Subscription subscription) {
+			this.subscription = subscription;
+			subscription.request(BATCH);
+		}
+
+		@Override
+		public void onNext(T item) {
+			try {
+				sessionizer.accept(key.apply(item), timestamp.apply(item));
+				if (++received == BATCH / 2) {
+					received = 0;
+					sessionizer.advanceWatermark(sessionizer.getWatermark());
+					subscription.request(BATCH / 2);
+				}
+			} catch (RuntimeException e) {
+				subscription.cancel();
+				closeExceptionally(e);
+			}
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+			closeExceptionally(throwable);
+		}
+
+		@Override
+		public void onComplete() {
+			try {
+				sessionizer.flush();
+				close();
+			} catch (RuntimeException e) {
+				closeExceptionally(e);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,381 @@
+package com.github.slshen.vdate;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntFunction;
+
+/**
+ * Sorting of large arrays and lists of {@link VTimestamp}, {@link VDateTime}
+ * and {@link VDate}.
+ *
+ * <p>
+ * Instead of comparing objects, a primitive key is pulled out of each value
+ * (the epoch-day for dates, the instant for timestamps and datetimes) and the
+ * keys are sorted with a parallel LSD radix sort on the common
+ * {@link ForkJoinPool}. All sorts are stable: values with equal keys stay in
+ * their original order. Note this means that {@link VDateTime}s are ordered by
+ * instant only, unlike {@link VDateTime#compareTo(VDateTime)} which also
+ * orders equal instants by zone.
+ */
+public final class VSort {
+
+	private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+	private VSort() {
+	}
+
+	public static void sort(VTimestamp[] a) {
+		reorder(a, permutation(a));
+	}
+
+	public static void sort(VDateTime[] a) {
+		reorder(a, permutation(a));
+	}
+
+	public static void sort(VDate[] a) {
+		reorder(a, permutation(a));
+	}
+
+	public static void sortTimestamps(List<VTimestamp> list) {
+		reorder(list, permutation(list.toArray(new VTimestamp[0])));
+	}
+
+	public static void sortDateTimes(List<VDateTime> list) {
+		reorder(list, permutation(list.toArray(new VDateTime[0])));
+	}
+
+	public static void sortDates(List<VDate> list) {
+		reorder(list, permutation(list.toArray(new VDate[0])));
+	}
+
+	/**
+	 * Return the permutation that sorts <code>a</code>, i.e. an array
+	 * <code>p</code> such that <code>a[p[0]], a[p[1]], ...</code> is in order.
+	 */
+	public static int[] permutation(VTimestamp[] a) {
+		return instantPermutation(a.length, i -> a[i].toInstant(), ForkJoinPool.commonPool());
+	}
+
+	public static int[] permutation(VDateTime[] a) {
+		return instantPermutation(a.length, i -> a[i].toZonedDateTime().toInstant(), ForkJoinPool.commonPool());
+	}
+
+	public static int[] permutation(VDate[] a) {
+		ForkJoinPool pool = ForkJoinPool.commonPool();
+		long[] keys = new long[a.length];
+		Parallel.forEachRange(pool, a.length, (from, to) -> {
+			for (int i = from; i < to; i++) {
+				keys[i] = a[i].toLocalDate().toEpochDay();
+			}
+		});
+		return permutation(keys, pool);
+	}
+
+	public static int[] permutation(long[] keys) {
+		return permutation(keys, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Return the stable permutation that sorts <code>keys</code>. The keys array
+	 * is left unchanged.
+	 *
+	 * @param pool
+	 *            the pool to sort large arrays on, or <code>null</code> to sort
+	 *            on the calling thread
+	 */
+	public static int[] permutation(long[] keys, ForkJoinPool pool) {
+		int[] payload = identity(keys.length);
+		radixSort(keys.clone(), payload, pool);
+		return payload;
+	}
+
+	/**
+	 * Merge runs that are each already sorted into a single sorted iterator. When
+	 * runs have equal values, the value from the earlier run comes first.
+	 */
+	public static <T extends Comparable<? super T>> Iterator<T> merge(List<? extends Iterator<? extends T>> runs) {
+		return merge(runs, Comparator.naturalOrder());
+	}
+
+	public static <T> Iterator<T> merge(List<? extends Iterator<? extends T>> runs, Comparator<? super T> comparator) {
+		return new MergeIterator<>(runs, comparator);
+	}
+
+	/**
+	 * Merge sorted runs of primitive keys, e.g. epoch millis, into a new sorted
+	 * array.
+	 */
+	public static long[] merge(long[]... runs) {
+		int total = 0;
+		for (long[] run : runs) {
+			total = Math.addExact(total, run.length);
+		}
+		long[] result = new long[total];
+		int[] pos = new int[runs.length];
+		int[] heap = new int[runs.length];
+		int size = 0;
+		for (int r = 0; r < runs.length; r++) {
+			if (runs[r].length > 0) {
+				heap[size++] = r;
+				siftUp(heap, size - 1, (x, y) -> compareHeads(runs, pos, x, y));
+			}
+		}
+		for (int i = 0; i < total; i++) {
+			int r = heap[0];
+			result[i] = runs[r][pos[r]++];
+			if (pos[r] == runs[r].length) {
+				heap[0] = heap[--size];
+			}
+			siftDown(heap, size, (x, y) -> compareHeads(runs, pos, x, y));
+		}
+		return result;
+	}
+
+	private static int compareHeads(long[][] runs, int[] pos, int r1, int r2) {
+		int c = Long.compare(runs[r1][pos[r1]], runs[r2][pos[r2]]);
+		return c != 0 ? c : Integer.compare(r1, r2);
+	}
+
+	private static int[] instantPermutation(int n, IntFunction<Instant> instantAt, ForkJoinPool pool) {
+		long[] seconds = new long[n];
+		int[] nanos = new int[n];
+		long[] minMax = { Long.MAX_VALUE, Long.MIN_VALUE };
+		Parallel.forEachRange(pool, n, (from, to) -> {
+			long min = Long.MAX_VALUE;
+			long max = Long.MIN_VALUE;
+			for (int i = from; i < to; i++) {
+				Instant instant = instantAt.apply(i);
+				seconds[i] = instant.getEpochSecond();
+				nanos[i] = instant.getNano();
+				min = Math.min(min, seconds[i]);
+				max = Math.max(max, seconds[i]);
+			}
+			synchronized (minMax) {
+				minMax[0] = Math.min(minMax[0], min);
+				minMax[1] = Math.max(minMax[1], max);
+			}
+		});
+		int[] payload = identity(n);
+		if (n < 2) {
+			return payload;
+		}
+		long min = minMax[0];
+		long span = minMax[1] - min;
+		if (span >= 0 && span < Long.MAX_VALUE / NANOS_PER_SECOND - 1) {
+			// about 292 years: a single key of nanos since the earliest second fits
+			Parallel.forEachRange(pool, n, (from, to) -> {
+				for (int i = from; i < to; i++) {
+					seconds[i] = (seconds[i] - min) * NANOS_PER_SECOND + nanos[i];
+				}
+			});
+			radixSort(seconds, payload, pool);
+		} else {
+			// sort by the nanos, then (stably) by the seconds
+			long[] keys = new long[n];
+			for (int i = 0; i < n; i++) {
+				keys[i] = nanos[i];
+			}
+			radixSort(keys, payload, pool);
+			for (int i = 0; i < n; i++) {
+				keys[i] = seconds[payload[i]];
+			}
+			radixSort(keys, payload, pool);
+		}
+		return payload;
+	}
+
+	/**
+	 * Sort <code>keys</code> in place, applying the same moves to
+	 * <code>payload</code>. Each pass sorts on one byte of the key; bytes that are
+	 * the same in every key are skipped.
+	 */
+	static void radixSort(long[] keys, int[] payload, ForkJoinPool pool) {
+		int n = keys.length;
+		if (n < 2) {
+			return;
+		}
+		long first = keys[0];
+		long diff = 0;
+		for (int i = 1; i < n; i++) {
+			diff |= keys[i] ^ first;
+		}
+		int chunks = Parallel.chunks(pool, n);
+		int[][] counts = new int[chunks][256];
+		long[] srcKeys = keys;
+		int[] srcPayload = payload;
+		long[] dstKeys = new long[n];
+		int[] dstPayload = new int[n];
+		for (int shift = 0; shift < 64; shift += 8) {
+			if (((diff >>> shift) & 0xFF) == 0) {
+				continue;
+			}
+			final int s = shift;
+			final long[] sk = srcKeys;
+			final int[] sp = srcPayload;
+			final long[] dk = dstKeys;
+			final int[] dp = dstPayload;
+			Parallel.forEach(pool, chunks, c -> {
+				int[] count = counts[c];
+				Arrays.fill(count, 0);
+				int end = Parallel.chunkStart(n, chunks, c + 1);
+				for (int i = Parallel.chunkStart(n, chunks, c); i < end; i++) {
+					count[digit(sk[i], s)]++;
+				}
+			});
+			int offset = 0;
+			for (int d = 0; d < 256; d++) {
+				for (int c = 0; c < chunks; c++) {
+					int count = counts[c][d];
+					counts[c][d] = offset;
+					offset += count;
+				}
+			}
+			Parallel.forEach(pool, chunks, c -> {
+				int[] next = counts[c];
+				int end = Parallel.chunkStart(n, chunks, c + 1);
+				for (int i = Parallel.chunkStart(n, chunks, c); i < end; i++) {
+					int j = next[digit(sk[i], s)]++;
+					dk[j] = sk[i];
+					dp[j] = sp[i];
+				}
+			});
+			srcKeys = dk;
+			srcPayload = dp;
+			dstKeys = sk;
+			dstPayload = sp;
+		}
+		if (srcKeys != keys) {
+			System.arraycopy(srcKeys, 0, keys, 0, n);
+			System.arraycopy(srcPayload, 0, payload, 0, n);
+		}
+	}
+
+	private static int digit(long key, int shift) {
+		// flip the sign bit so that negative keys sort first
+		return (int) ((key ^ Long.MIN_VALUE) >>> shift) & 0xFF;
+	}
+
+	private static int[] identity(int n) {
+		int[] a = new int[n];
+		for (int i = 0; i < n; i++) {
+			a[i] = i;
+		}
+		return a;
+	}
+
+	private static <T> void reorder(T[] a, int[] permutation) {
+		Object[] copy = a.clone();
+		for (int i = 0; i < a.length; i++) {
+			@SuppressWarnings("unchecked")
+			T t = (T) copy[permutation[i]];
+			a[i] = t;
+		}
+	}
+
+	private static <T> void reorder(List<T> list, int[] permutation) {
+		Object[] copy = list.toArray();
+		ListIterator<T> it = list.listIterator();
+		for (int i = 0; i < permutation.length; i++) {
+			@SuppressWarnings("unchecked")
+			T t = (T) copy[permutation[i]];
+			it.next();
+			it.set(t);
+		}
+	}
+
+	private interface IntComparator {
+		int compare(int x, int y);
+	}
+
+	private static void siftUp(int[] heap, int i, IntComparator c) {
+		int x = heap[i];
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (c.compare(x, heap[parent]) >= 0) {
+				break;
+			}
+			heap[i] = heap[parent];
+			i = parent;
+		}
+		heap[i] = x;
+	}
+
+	private static void siftDown(int[] heap, int size, IntComparator c) {
+		if (size == 0) {
+			return;
+		}
+		int i = 0;
+		int x = heap[0];
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= size) {
+				break;
+			}
+			if (child + 1 < size && c.compare(heap[child + 1], heap[child]) < 0) {
+				child++;
+			}
+			if (c.compare(x, heap[child]) <= 0) {
+				break;
+			}
+			heap[i] = heap[child];
+			i = child;
+		}
+		heap[i] = x;
+	}
+
+	private static class MergeIterator<T> implements Iterator<T> {
+		private final Iterator<? extends T>[] runs;
+		private final Object[] heads;
+		private final int[] heap;
+		private final IntComparator comparator;
+		private int size;
+
+		@SuppressWarnings("unchecked")
+		MergeIterator(List<? extends Iterator<? extends T>> runs, Comparator<? super T> comparator) {
+			this.runs = runs.toArray(new Iterator[0]);
+			this.heads = new Object[this.runs.length];
+			this.heap = new int[this.runs.length];
+			this.comparator = (r1, r2) -> {
+				int c = comparator.compare((T) heads[r1], (T) heads[r2]);
+				return c != 0 ? c : Integer.compare(r1, r2);
+			};
+			for (int r = 0; r < this.runs.length; r++) {
+				if (this.runs[r].hasNext()) {
+					heads[r] = this.runs[r].next();
+					heap[size++] = r;
+					siftUp(heap, size - 1, this.comparator);
+				}
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return size > 0;
+		}
+
+		@Override
+		public T next() {
+			if (size == 0) {
+				throw new NoSuchElementException();
+			}
+			int r = heap[0];
+			@SuppressWarnings("unchecked")
+			T result = (T) heads[r];
+			if (runs[r].hasNext()) {
+				heads[r] = runs[r].next();
+			} else {
+				heads[r] = null;
+				heap[0] = heap[--size];
+			}
+			siftDown(heap, size, comparator);
+			return result;
+		}
+	}
+
+}
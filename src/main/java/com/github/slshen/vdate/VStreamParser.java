@@ -0,0 +1,468 @@
+package com.github.slshen.vdate;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Parses newline separated records of date-times or timestamps from text that
+ * arrives in arbitrary chunks, e.g. from a non-blocking socket.
+ *
+ * <p>
+ * Characters are collected into a reused buffer until the end of a record
+ * (<code>\n</code> or <code>\r\n</code>), so records may be split anywhere
+ * across chunks. Each record is then parsed according to a {@link Format}.
+ * Blank records are skipped. Bytes are read as ISO-8859-1.
+ *
+ * <p>
+ * Records that fail to parse, or are longer than the maximum length, are
+ * passed to the error handler with the exception and counted as parse
+ * failures by {@link VMetrics}.
+ *
+ * <p>
+ * Instances are not thread-safe. {@link #processor} and
+ * {@link #byteProcessor} wrap a parser in a {@link Flow.Processor}.
+ */
+public class VStreamParser<T> {
+
+	/**
+	 * How records are parsed.
+	 */
+	public static final class Format<T> {
+
+		/**
+		 * Records are parsed with the grammar of
+		 * {@link VDateTime#VDateTime(CharSequence)} (an optional
+		 * {@link VDate#DATE_PATTERN date}, an optional
+		 * {@link VTimeOfDay#TIME_PATTERN time} and an optional
+		 * {@link VDateTime#ZONE_ID_PATTERN zone}) by a hand-written scanner that
+		 * gives the same results as the regular expressions without creating
+		 * matchers or strings, and zones are resolved with {@link VZones}.
+		 */
+		public static final Format<VDateTime> DATE_TIME = new Format<>(VMetrics.Counter.DATE_TIME_PARSE,
+				VMetrics.Counter.DATE_TIME_PARSE_FAILURE, VStreamParser::parseDateTime);
+
+		/**
+		 * Records are parsed like {@link VTimestamp#VTimestamp(CharSequence)}, as
+		 * ISO instants such as <code>2018-01-01T10:00:00Z</code>. The common
+		 * form, UTC with up to 9 fraction digits, is scanned directly; other
+		 * forms are handed to {@link Instant#parse}.
+		 */
+		public static final Format<VTimestamp> TIMESTAMP = new Format<>(VMetrics.Counter.TIMESTAMP_PARSE,
+				VMetrics.Counter.TIMESTAMP_PARSE_FAILURE, VStreamParser::parseTimestamp);
+
+		private final VMetrics.Counter counter;
+		private final VMetrics.Counter failure;
+		private final Function<Record, T> parser;
+
+		private Format(VMetrics.Counter counter, VMetrics.Counter failure, Function<Record, T> parser) {
+			this.counter = counter;
+			this.failure = failure;
+			this.parser = parser;
+		}
+	}
+
+	public static final int DEFAULT_MAX_LENGTH = 1024;
+
+	private final Format<T> format;
+	private final Consumer<? super T> output;
+	private final BiConsumer<? super String, ? super RuntimeException> errors;
+	private final Record record;
+	private final Function<CharSequence, T> parse;
+	private boolean overflow;
+
+	/**
+	 * @param output
+	 *            receives the parsed values
+	 * @param errors
+	 *            receives the text of each bad record and the exception
+	 */
+	public VStreamParser(Format<T> format, Consumer<? super T> output,
+			BiConsumer<? super String, ? super RuntimeException> errors) {
+		this(format, output, errors, DEFAULT_MAX_LENGTH);
+	}
+
+	public VStreamParser(Format<T> format, Consumer<? super T> output,
+			BiConsumer<? super String, ? super RuntimeException> errors, int maxLength) {
+		Objects.requireNonNull(format, "format");
+		Objects.requireNonNull(output, "output");
+		Objects.requireNonNull(errors, "errors");
+		if (maxLength <= 0) {
+			throw new IllegalArgumentException("maxLength must be positive");
+		}
+		this.format = format;
+		this.output = output;
+		this.errors = errors;
+		this.record = new Record(maxLength);
+		this.parse = text -> format.parser.apply(record);
+	}
+
+	public void accept(CharSequence chunk) {
+		for (int i = 0, n = chunk.length(); i < n; i++) {
+			accept(chunk.charAt(i));
+		}
+	}
+
+	/**
+	 * Parse the remaining bytes of a buffer, advancing its position to its
+	 * limit.
+	 */
+	public void accept(ByteBuffer chunk) {
+		if (chunk.hasArray()) {
+			byte[] bytes = chunk.array();
+			int end = chunk.arrayOffset() + chunk.limit();
+			for (int i = chunk.arrayOffset() + chunk.position(); i < end; i++) {
+				accept((char) (bytes[i] & 0xff));
+			}
+			chunk.position(chunk.limit());
+		} else {
+			while (chunk.hasRemaining()) {
+				accept((char) (chunk.get() & 0xff));
+			}
+		}
+	}
+
+	/**
+	 * Parse the last record if the input did not end with a newline.
+	 */
+	public void finish() {
+		endRecord();
+	}
+
+	private void accept(char c) {
+		if (c == '\n') {
+			endRecord();
+		} else if (record.length < record.chars.length) {
+			record.chars[record.length++] = c;
+		} else {
+			overflow = true;
+		}
+	}
+
+	private void endRecord() {
+		if (overflow) {
+			if (VMetrics.ENABLED) {
+				VMetrics.increment(format.counter);
+				VMetrics.increment(format.failure);
+			}
+			String text = record.toString();
+			errors.accept(text, new DateTimeParseException("record longer than " + record.chars.length, text,
+					record.chars.length));
+		} else {
+			if (record.length > 0 && record.chars[record.length - 1] == '\r') {
+				record.length--;
+			}
+			if (record.skipSpace(0) < record.length) {
+				T value;
+				try {
+					value = VMetrics.parse(format.counter, format.failure, record, parse);
+				} catch (RuntimeException e) {
+					errors.accept(record.toString(), e);
+					value = null;
+				}
+				if (value != null) {
+					output.accept(value);
+				}
+			}
+		}
+		record.length = 0;
+		overflow = false;
+	}
+
+	/**
+	 * Parse a record the way {@link VDateTime#parse(CharSequence)} does: the
+	 * greedy choices below are the ones the regular expressions make, as no
+	 * later part of a pattern can fail once its leading digits have matched.
+	 */
+	private static VDateTime parseDateTime(Record record) {
+		char[] c = record.chars;
+		int n = record.length;
+		int p = 0;
+
+		// \s*((\d{4})-(\d{1,2})-(\d{1,2}))
+		LocalDate date = null;
+		int q = record.skipSpace(0);
+		if (record.digits(q, 4) == 4 && q + 4 < n && c[q + 4] == '-') {
+			int m = q + 5;
+			int ml = record.digits(m, 2);
+			if (ml > 0 && m + ml < n && c[m + ml] == '-') {
+				int d = m + ml + 1;
+				int dl = record.digits(d, 2);
+				if (dl > 0) {
+					date = LocalDate.of(record.number(q, 4), record.number(m, ml), record.number(d, dl));
+					p = d + dl;
+				}
+			}
+		}
+
+		// \s*(\d{1,2}):(\d{2})(:(\d{2})(\.(\d+))?)?\s*([AaPp][Mm])?
+		LocalTime time = null;
+		q = record.skipSpace(p);
+		int hl = record.digits(q, 2);
+		if (hl > 0 && q + hl < n && c[q + hl] == ':' && record.digits(q + hl + 1, 2) == 2) {
+			int hour = record.number(q, hl);
+			int minute = record.number(q + hl + 1, 2);
+			int second = 0;
+			int nanos = 0;
+			int r = q + hl + 3;
+			if (r < n && c[r] == ':' && record.digits(r + 1, 2) == 2) {
+				second = record.number(r + 1, 2);
+				r += 3;
+				if (r < n && c[r] == '.' && record.digits(r + 1, 1) == 1) {
+					int f = r + 1;
+					int fl = record.digits(f, Integer.MAX_VALUE);
+					nanos = record.nanos(f, Math.min(fl, 9));
+					r = f + fl;
+				}
+			}
+			r = record.skipSpace(r);
+			if (r + 1 < n && "AaPp".indexOf(c[r]) >= 0 && (c[r + 1] == 'M' || c[r + 1] == 'm')) {
+				if (c[r] == 'P' || c[r] == 'p') {
+					hour += 12;
+				}
+				r += 2;
+			}
+			time = LocalTime.of(hour, minute, second, nanos);
+			p = r;
+		}
+
+		// \s*(\S+)
+		ZoneId zoneId = VDateTime.DEFAULT_ZONE;
+		q = record.skipSpace(p);
+		if (q < n) {
+			int e = q;
+			while (e < n && !isSpace(c[e])) {
+				e++;
+			}
+			zoneId = VZones.resolve(record, q, e);
+		}
+		return new VDateTime(ZonedDateTime.of(date != null ? date : LocalDate.now(),
+				time != null ? time : LocalTime.MIDNIGHT, zoneId));
+	}
+
+	/**
+	 * Parse a record the way {@link Instant#parse} does. Only
+	 * <code>yyyy-MM-ddTHH:mm:ss[.n]Z</code> with valid fields is scanned here;
+	 * anything else, including errors, is left to {@link Instant#parse}.
+	 */
+	private static VTimestamp parseTimestamp(Record record) {
+		char[] c = record.chars;
+		int n = record.length;
+		if (n >= 20 && record.digits(0, 4) == 4 && c[4] == '-' && record.digits(5, 2) == 2 && c[7] == '-'
+				&& record.digits(8, 2) == 2 && c[10] == 'T' && record.digits(11, 2) == 2 && c[13] == ':'
+				&& record.digits(14, 2) == 2 && c[16] == ':' && record.digits(17, 2) == 2 && c[n - 1] == 'Z') {
+			int year = record.number(0, 4);
+			int month = record.number(5, 2);
+			int day = record.number(8, 2);
+			int hour = record.number(11, 2);
+			int minute = record.number(14, 2);
+			int second = record.number(17, 2);
+			int nanos = 0;
+			int p = 19;
+			if (p < n - 1 && c[p] == '.') {
+				int fl = record.digits(p + 1, 10);
+				if (fl >= 1 && fl <= 9) {
+					nanos = record.nanos(p + 1, fl);
+					p += fl + 1;
+				}
+			}
+			if (p == n - 1 && month >= 1 && month <= 12 && day >= 1
+					&& day <= CivilCalendar.lengthOfMonth(year, month) && hour <= 23 && minute <= 59 && second <= 59) {
+				long epochSecond = CivilCalendar.toEpochDay(year, month, day) * 86_400 + hour * 3600 + minute * 60
+						+ second;
+				return new VTimestamp(Instant.ofEpochSecond(epochSecond, nanos));
+			}
+		}
+		return new VTimestamp(Instant.parse(record));
+	}
+
+	/**
+	 * The characters of <code>\s</code>.
+	 */
+	private static boolean isSpace(char c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+	}
+
+	/**
+	 * The current record, reused for every record.
+	 */
+	private static final class Record implements CharSequence {
+		final char[] chars;
+		int length;
+
+		Record(int maxLength) {
+			chars = new char[maxLength];
+		}
+
+		/**
+		 * Return the number of digits, up to max, starting at i.
+		 */
+		int digits(int i, int max) {
+			int j = i;
+			while (j < length && j - i < max && chars[j] >= '0' && chars[j] <= '9') {
+				j++;
+			}
+			return j - i;
+		}
+
+		int number(int i, int n) {
+			int value = 0;
+			for (int j = i; j < i + n; j++) {
+				value = value * 10 + chars[j] - '0';
+			}
+			return value;
+		}
+
+		/**
+		 * Return the nanos of a fraction of a second of up to 9 digits.
+		 */
+		int nanos(int i, int n) {
+			int value = number(i, n);
+			for (int j = n; j < 9; j++) {
+				value *= 10;
+			}
+			return value;
+		}
+
+		int skipSpace(int i) {
+			while (i < length && isSpace(chars[i])) {
+				i++;
+			}
+			return i;
+		}
+
+		@Override
+		public int length() {
+			return length;
+		}
+
+		@Override
+		public char charAt(int index) {
+			Objects.checkIndex(index, length);
+			return chars[index];
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			Objects.checkFromToIndex(start, end, length);
+			return new String(chars, start, end - start);
+		}
+
+		@Override
+		public String toString() {
+			return new String(chars, 0, length);
+		}
+	}
+
+	/**
+	 * Return a {@link Flow.Processor} that parses the text chunks it receives
+	 * and publishes, for each chunk, the values of the records that the chunk
+	 * completed (chunks that complete no records publish nothing.) Chunks are
+	 * requested from upstream in batches, and publishing blocks in
+	 * {@link SubmissionPublisher#submit} while subscribers are behind, which in
+	 * turn holds back upstream requests.
+	 *
+	 * @param executor
+	 *            the executor used to deliver values to subscribers
+	 */
+	public static <T> Flow.Processor<CharSequence, List<T>> processor(Format<T> format, Executor executor,
+			BiConsumer<? super String, ? super RuntimeException> errors) {
+		return new ParseProcessor<CharSequence, T>(format, executor, errors, VStreamParser::accept);
+	}
+
+	public static <T> Flow.Processor<CharSequence, List<T>> processor(Format<T> format,
+			BiConsumer<? super String, ? super RuntimeException> errors) {
+		return processor(format, ForkJoinPool.commonPool(), errors);
+	}
+
+	/**
+	 * Like {@link #processor(Format, Executor, BiConsumer)} for chunks of bytes.
+	 */
+	public static <T> Flow.Processor<ByteBuffer, List<T>> byteProcessor(Format<T> format, Executor executor,
+			BiConsumer<? super String, ? super RuntimeException> errors) {
+		return new ParseProcessor<ByteBuffer, T>(format, executor, errors, VStreamParser::accept);
+	}
+
+	public static <T> Flow.Processor<ByteBuffer, List<T>> byteProcessor(Format<T> format,
+			BiConsumer<? super String, ? super RuntimeException> errors) {
+		return byteProcessor(format, ForkJoinPool.commonPool(), errors);
+	}
+
+	private static class ParseProcessor<S, T> extends SubmissionPublisher<List<T>>
+			implements Flow.Processor<S, List<T>> {
+		private static final int BATCH = 16;
+		private final BiConsumer<VStreamParser<T>, S> feed;
+		private final VStreamParser<T> parser;
+		private List<T> values = new ArrayList<>();
+		private Flow.Subscription subscription;
+		private int received;
+
+		ParseProcessor(Format<T> format, Executor executor,
+				BiConsumer<? super String, ? super RuntimeException> errors, BiConsumer<VStreamParser<T>, S> feed) {
+			super(executor, Flow.defaultBufferSize());
+			this.feed = feed;
+			this.parser = new VStreamParser<>(format, v -> values.add(v), errors);
+		}
+
+		@Override
+		public void onSubscribe(Flow.Subscription subscription) {
+			this.subscription = subscription;
+			subscription.request(BATCH);
+		}
+
+		@Override
+		public void onNext(S item) {
+			try {
+				feed.accept(parser, item);
+				publish();
+			} catch (RuntimeException e) {
+				subscription.cancel();
+				closeExceptionally(e);
+				return;
+			}
+			if (++received == BATCH / 2) {
+				received = 0;
+				subscription.request(BATCH / 2);
+			}
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+			closeExceptionally(throwable);
+		}
+
+		@Override
+		public void onComplete() {
+			try {
+				parser.finish();
+				publish();
+				close();
+			} catch (RuntimeException e) {
+				closeExceptionally(e);
+			}
+		}
+
+		private void publish() {
+			if (!values.isEmpty()) {
+				List<T> batch = values;
+				values = new ArrayList<>();
+				submit(batch);
+			}
+		}
+	}
+
+}
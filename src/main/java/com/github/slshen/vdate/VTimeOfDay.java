@@ -35,6 +35,19 @@ public class VTimeOfDay implements Comparable<VTimeOfDay>, Serializable {
 		this(parse(text));
 	}
 
+	/**
+	 * Return a time of day, which is shared if {@link VIntern} is interning
+	 * times.
+	 */
+	public static VTimeOfDay valueOf(LocalTime time) {
+		VTimeOfDay t = VIntern.time(time.toNanoOfDay());
+		return t != null ? t : new VTimeOfDay(time);
+	}
+
+	public static VTimeOfDay valueOf(CharSequence text) {
+		return valueOf(parse(text));
+	}
+
 	/**
 	 * Parse a time from some text, loosely following the ISO standard.
 	 * Can handle the following formats:
@@ -47,6 +60,11 @@ public class VTimeOfDay implements Comparable<VTimeOfDay>, Serializable {
 	 * The time may optionally be followed by an AM or PM indicator.
 	 */
 	public static LocalTime parse(CharSequence text) {
+		return VMetrics.parse(VMetrics.Counter.TIME_PARSE, VMetrics.Counter.TIME_PARSE_FAILURE, text,
+				VTimeOfDay::parseTime);
+	}
+
+	private static LocalTime parseTime(CharSequence text) {
 		Matcher m = TIME_PATTERN.matcher(text);
 		return extract(m).orElseThrow(() -> new DateTimeParseException("not a time", text, 0));
 	}
@@ -138,6 +156,11 @@ public class VTimeOfDay implements Comparable<VTimeOfDay>, Serializable {
 		return time;
 	}
 
+	private Object readResolve() {
+		VTimeOfDay t = VIntern.time(time.toNanoOfDay());
+		return t != null ? t : this;
+	}
+
 	@Override
 	public int hashCode() {
 		return time.hashCode();
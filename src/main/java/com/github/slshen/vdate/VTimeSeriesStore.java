@@ -0,0 +1,279 @@
+package com.github.slshen.vdate;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * An append-only store of (timestamp, value) samples kept off-heap in
+ * memory-mapped files.
+ *
+ * <p>
+ * Samples are partitioned into one segment per local {@link VDate} in the
+ * store's zone, stored as <code>yyyy-mm-dd.seg</code> files (plus a
+ * <code>.idx</code> file holding a sparse index) in the store's directory.
+ * Within a day, samples must be appended in timestamp order. Range queries
+ * binary search the sparse index and return a {@link Cursor} that reads
+ * primitives straight out of the mapped files. Retention is by whole days with
+ * {@link #dropBefore(VDate)}, which deletes the files of segments that are not
+ * open without mapping them. Reopening a store only lists the directory;
+ * segments are mapped when first used, and closing the store truncates them to
+ * the samples appended.
+ *
+ * <p>
+ * Values are stored as longs; doubles are stored as their raw bits. Timestamps
+ * are stored as epoch nanos, which covers the years 1677 through 2262.
+ * Appends, drops and opening cursors are synchronized; a cursor sees the
+ * samples that existed when it was opened.
+ */
+public class VTimeSeriesStore implements Closeable {
+
+	private static final String DATA_SUFFIX = ".seg";
+	private static final String INDEX_SUFFIX = ".idx";
+	private static final String ZONE_FILE = "zone";
+
+	private final Path directory;
+	private final ZoneId zoneId;
+	private final OffsetWindow offsets;
+	/** segments by epoch-day; values are null until the segment is opened */
+	private final TreeMap<Long, Segment> segments = new TreeMap<>();
+
+	/**
+	 * Open or create a store in a directory.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the store exists and was created with a different zone
+	 */
+	public VTimeSeriesStore(Path directory, ZoneId zoneId) throws IOException {
+		Objects.requireNonNull(zoneId, "zoneId");
+		this.directory = directory;
+		this.zoneId = zoneId;
+		this.offsets = new OffsetWindow(zoneId.getRules());
+		Files.createDirectories(directory);
+		Path zoneFile = directory.resolve(ZONE_FILE);
+		if (Files.exists(zoneFile)) {
+			String existing = new String(Files.readAllBytes(zoneFile), StandardCharsets.UTF_8).trim();
+			if (!existing.equals(zoneId.getId())) {
+				throw new IllegalArgumentException(directory + " is partitioned by zone " + existing);
+			}
+		} else {
+			Files.write(zoneFile, zoneId.getId().getBytes(StandardCharsets.UTF_8));
+		}
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + DATA_SUFFIX)) {
+			for (Path file : files) {
+				String name = file.getFileName().toString();
+				try {
+					LocalDate date = LocalDate.parse(name.substring(0, name.length() - DATA_SUFFIX.length()));
+					segments.put(date.toEpochDay(), null);
+				} catch (DateTimeParseException e) {
+					// not ours
+				}
+			}
+		}
+	}
+
+	public ZoneId getZoneId() {
+		return zoneId;
+	}
+
+	/**
+	 * Return the days that have segments, in order.
+	 */
+	public synchronized List<VDate> getDates() {
+		List<VDate> dates = new ArrayList<>();
+		for (long day : segments.keySet()) {
+			dates.add(VDate.ofEpochDay(day));
+		}
+		return dates;
+	}
+
+	public void append(VTimestamp timestamp, long value) throws IOException {
+		append(EpochNanos.of(timestamp), value);
+	}
+
+	public void append(VTimestamp timestamp, double value) throws IOException {
+		append(EpochNanos.of(timestamp), Double.doubleToRawLongBits(value));
+	}
+
+	/**
+	 * Append a sample.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the timestamp is before the last sample of the same day
+	 */
+	public synchronized void append(long epochNanos, long value) throws IOException {
+		long second = Math.floorDiv(epochNanos, 1_000_000_000L);
+		long day = Math.floorDiv(second + offsets.offsetAt(second), 86_400);
+		Segment segment = segment(day, true);
+		if (segment.getCount() > 0 && epochNanos < segment.getLastTimestamp()) {
+			throw new IllegalArgumentException(
+					"sample at " + EpochNanos.toTimestamp(epochNanos) + " is before the last sample of its day");
+		}
+		segment.append(epochNanos, value);
+	}
+
+	/**
+	 * Return a cursor over the samples with timestamps in
+	 * <code>[from, to)</code>.
+	 */
+	public Cursor cursor(VTimestamp from, VTimestamp to) throws IOException {
+		return cursor(EpochNanos.of(from), EpochNanos.of(to));
+	}
+
+	public synchronized Cursor cursor(long fromEpochNanos, long toEpochNanos) throws IOException {
+		List<Segment.View> views = new ArrayList<>();
+		if (fromEpochNanos < toEpochNanos) {
+			long fromDay = localDay(fromEpochNanos);
+			long toDay = localDay(toEpochNanos);
+			for (long day : new ArrayList<>(segments.subMap(fromDay, true, toDay, true).keySet())) {
+				views.add(segment(day, false).view());
+			}
+		}
+		return new Cursor(views, fromEpochNanos, toEpochNanos);
+	}
+
+	/**
+	 * Delete the segments of all days before the given date.
+	 *
+	 * @return the number of days dropped
+	 */
+	public synchronized int dropBefore(VDate date) throws IOException {
+		int dropped = 0;
+		Iterator<Map.Entry<Long, Segment>> it = segments.headMap(date.toLocalDate().toEpochDay()).entrySet()
+				.iterator();
+		while (it.hasNext()) {
+			Map.Entry<Long, Segment> e = it.next();
+			if (e.getValue() != null) {
+				e.getValue().delete();
+			} else {
+				Segment.delete(dataPath(e.getKey()), indexPath(e.getKey()));
+			}
+			it.remove();
+			dropped++;
+		}
+		return dropped;
+	}
+
+	/**
+	 * Force appended samples to disk.
+	 */
+	public synchronized void flush() {
+		for (Segment segment : segments.values()) {
+			if (segment != null) {
+				segment.force();
+			}
+		}
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		IOException error = null;
+		for (Map.Entry<Long, Segment> e : segments.entrySet()) {
+			if (e.getValue() != null) {
+				try {
+					e.getValue().close();
+				} catch (IOException ex) {
+					error = ex;
+				}
+				e.setValue(null);
+			}
+		}
+		if (error != null) {
+			throw error;
+		}
+	}
+
+	private long localDay(long epochNanos) {
+		long second = Math.floorDiv(epochNanos, 1_000_000_000L);
+		return Math.floorDiv(second + offsets.offsetAt(second), 86_400);
+	}
+
+	private Segment segment(long day, boolean create) throws IOException {
+		Segment segment = segments.get(day);
+		if (segment == null && (create || segments.containsKey(day))) {
+			segment = open(day);
+			segments.put(day, segment);
+		}
+		return segment;
+	}
+
+	private Segment open(long day) throws IOException {
+		return new Segment(dataPath(day), indexPath(day));
+	}
+
+	private Path dataPath(long day) {
+		return directory.resolve(LocalDate.ofEpochDay(day) + DATA_SUFFIX);
+	}
+
+	private Path indexPath(long day) {
+		return directory.resolve(LocalDate.ofEpochDay(day) + INDEX_SUFFIX);
+	}
+
+	/**
+	 * Iterates over samples in timestamp order without creating objects. Call
+	 * {@link #next()} before reading the first sample.
+	 */
+	public static class Cursor {
+		private final List<Segment.View> views;
+		private final long from;
+		private final long to;
+		private int segment = -1;
+		private Segment.View view;
+		private int position;
+		private int end;
+
+		Cursor(List<Segment.View> views, long from, long to) {
+			this.views = views;
+			this.from = from;
+			this.to = to;
+		}
+
+		/**
+		 * Move to the next sample, returning false if there are no more.
+		 */
+		public boolean next() {
+			if (view != null && ++position < end) {
+				return true;
+			}
+			while (++segment < views.size()) {
+				view = views.get(segment);
+				position = view.search(from);
+				end = view.search(to);
+				if (position < end) {
+					return true;
+				}
+			}
+			view = null;
+			return false;
+		}
+
+		public long getTimestampNanos() {
+			return view.timestampAt(position);
+		}
+
+		public VTimestamp getTimestamp() {
+			return EpochNanos.toTimestamp(getTimestampNanos());
+		}
+
+		public long getLong() {
+			return view.valueAt(position);
+		}
+
+		public double getDouble() {
+			return Double.longBitsToDouble(getLong());
+		}
+	}
+
+}
@@ -13,7 +13,8 @@ public class VTimestamp implements Comparable<VTimestamp>, Serializable {
 	}
 
 	public VTimestamp(CharSequence text) {
-		this(Instant.parse(text));
+		this(VMetrics.parse(VMetrics.Counter.TIMESTAMP_PARSE, VMetrics.Counter.TIMESTAMP_PARSE_FAILURE, text,
+				Instant::parse));
 	}
 
 	public VTimestamp(long epochMilli) {
@@ -29,7 +30,8 @@ public class VTimestamp implements Comparable<VTimestamp>, Serializable {
 	}
 
 	public VDate toDate(ZoneId zoneId) {
-		return new VDate(toInstant().atZone(zoneId).toLocalDate());
+		long localSecond = instant.getEpochSecond() + VMetrics.offsetAt(instant, zoneId);
+		return VDate.ofEpochDay(Math.floorDiv(localSecond, 86_400));
 	}
 
 	public VDate toDate() {
@@ -37,7 +39,7 @@ public class VTimestamp implements Comparable<VTimestamp>, Serializable {
 	}
 
 	public VTimeOfDay toTimeOfDay(ZoneId zoneId) {
-		return new VTimeOfDay(toInstant().atZone(zoneId).toLocalTime());
+		return VTimeOfDay.valueOf(VMetrics.atZone(instant, zoneId).toLocalTime());
 	}
 
 	public VTimeOfDay toTimeOfDay() {
@@ -45,7 +47,7 @@ public class VTimestamp implements Comparable<VTimestamp>, Serializable {
 	}
 
 	public VDateTime toDateTime(ZoneId zoneId) {
-		return new VDateTime(instant.atZone(zoneId));
+		return new VDateTime(VMetrics.atZone(instant, zoneId));
 	}
 
 	public VDateTime toDateTime() {
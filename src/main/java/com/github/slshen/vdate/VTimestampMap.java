@@ -0,0 +1,390 @@
+package com.github.slshen.vdate;
+
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A concurrent sorted map from timestamps to values, partitioned into buckets
+ * of a fixed length of time, for buffers of recent events.
+ *
+ * <p>
+ * Each bucket keeps its keys as a sorted array of epoch nanos (so timestamps
+ * must be between the years 1677 and 2262) with a parallel array of values,
+ * guarded by its own read-write lock, so writers to different buckets do not
+ * contend. Appending in time order adds to the end of a bucket's arrays.
+ * {@link #evictBefore} drops whole buckets at once rather than entry by entry,
+ * and a bucket is dropped when its last entry is removed.
+ *
+ * <p>
+ * Null values are not allowed. Iteration and the range operations are weakly
+ * consistent: they see each bucket as of the moment they reach it, and skip
+ * buckets that have been dropped by then.
+ *
+ * <p>
+ * This is not a {@link java.util.NavigableMap}: the keys are primitive, and
+ * the map views would box them and create an entry per access, which is what
+ * the bucket arrays avoid. {@link #size} is a long.
+ */
+public class VTimestampMap<V> {
+
+	/**
+	 * Receives the entries of a range without creating timestamps.
+	 */
+	@FunctionalInterface
+	public interface EntryConsumer<V> {
+		void accept(long epochNanos, V value);
+	}
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private static final class Bucket {
+		final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+		long[] keys = new long[INITIAL_CAPACITY];
+		Object[] values = new Object[INITIAL_CAPACITY];
+		int size;
+		boolean evicted;
+
+		/**
+		 * Return the index of the key, or -(insertion point) - 1.
+		 */
+		int search(long key) {
+			if (size == 0 || keys[size - 1] < key) {
+				return -size - 1;
+			}
+			return Arrays.binarySearch(keys, 0, size, key);
+		}
+
+		/**
+		 * Return the index of the first key at or after the given key.
+		 */
+		int ceiling(long key) {
+			int i = search(key);
+			return i >= 0 ? i : -i - 1;
+		}
+	}
+
+	private final long bucketNanos;
+	private final ConcurrentSkipListMap<Long, Bucket> buckets = new ConcurrentSkipListMap<>();
+	private final LongAdder size = new LongAdder();
+
+	/**
+	 * @param bucketLength
+	 *            the length of time covered by each bucket, a duration
+	 *            (days count as 24 hours)
+	 */
+	public VTimestampMap(VInterval bucketLength) {
+		if (bucketLength.getYears() != 0 || bucketLength.getMonths() != 0) {
+			throw new IllegalArgumentException("bucket length must not have years or months: " + bucketLength);
+		}
+		bucketNanos = Math.addExact(Math.multiplyExact(bucketLength.getDays(), 86_400_000_000_000L),
+				bucketLength.getDuration().toNanos());
+		if (bucketNanos <= 0) {
+			throw new IllegalArgumentException("bucket length must be positive: " + bucketLength);
+		}
+	}
+
+	/**
+	 * Return the number of entries.
+	 */
+	public long size() {
+		return size.sum();
+	}
+
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	/**
+	 * Return the number of non-empty buckets.
+	 */
+	public int getBucketCount() {
+		return buckets.size();
+	}
+
+	public V put(VTimestamp timestamp, V value) {
+		return put(EpochNanos.of(timestamp), value);
+	}
+
+	/**
+	 * Associate a value with a timestamp, returning the previous value or null.
+	 */
+	@SuppressWarnings("unchecked")
+	public V put(long epochNanos, V value) {
+		Objects.requireNonNull(value, "value");
+		Long index = Math.floorDiv(epochNanos, bucketNanos);
+		while (true) {
+			Bucket b = buckets.computeIfAbsent(index, k -> new Bucket());
+			b.lock.writeLock().lock();
+			try {
+				if (b.evicted) {
+					// lost a race with removal of the bucket, which has already
+					// been taken out of the map, so this gets a new one
+					continue;
+				}
+				int i = b.search(epochNanos);
+				if (i >= 0) {
+					V previous = (V) b.values[i];
+					b.values[i] = value;
+					return previous;
+				}
+				i = -i - 1;
+				if (b.size == b.keys.length) {
+					b.keys = Arrays.copyOf(b.keys, b.size * 2);
+					b.values = Arrays.copyOf(b.values, b.size * 2);
+				}
+				System.arraycopy(b.keys, i, b.keys, i + 1, b.size - i);
+				System.arraycopy(b.values, i, b.values, i + 1, b.size - i);
+				b.keys[i] = epochNanos;
+				b.values[i] = value;
+				b.size++;
+				size.increment();
+				return null;
+			} finally {
+				b.lock.writeLock().unlock();
+			}
+		}
+	}
+
+	public V get(VTimestamp timestamp) {
+		return get(EpochNanos.of(timestamp));
+	}
+
+	@SuppressWarnings("unchecked")
+	public V get(long epochNanos) {
+		Bucket b = buckets.get(Math.floorDiv(epochNanos, bucketNanos));
+		if (b == null) {
+			return null;
+		}
+		b.lock.readLock().lock();
+		try {
+			int i = b.evicted ? -1 : b.search(epochNanos);
+			return i >= 0 ? (V) b.values[i] : null;
+		} finally {
+			b.lock.readLock().unlock();
+		}
+	}
+
+	public boolean containsKey(VTimestamp timestamp) {
+		return get(timestamp) != null;
+	}
+
+	public V remove(VTimestamp timestamp) {
+		return remove(EpochNanos.of(timestamp));
+	}
+
+	@SuppressWarnings("unchecked")
+	public V remove(long epochNanos) {
+		Long index = Math.floorDiv(epochNanos, bucketNanos);
+		Bucket b = buckets.get(index);
+		if (b == null) {
+			return null;
+		}
+		b.lock.writeLock().lock();
+		try {
+			int i = b.evicted ? -1 : b.search(epochNanos);
+			if (i < 0) {
+				return null;
+			}
+			V previous = (V) b.values[i];
+			System.arraycopy(b.keys, i + 1, b.keys, i, b.size - i - 1);
+			System.arraycopy(b.values, i + 1, b.values, i, b.size - i - 1);
+			b.values[--b.size] = null;
+			size.decrement();
+			if (b.size == 0) {
+				buckets.remove(index, b);
+				b.evicted = true;
+			}
+			return previous;
+		} finally {
+			b.lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Return the entry with the greatest timestamp at or before the given one,
+	 * or null if there is none.
+	 */
+	public Map.Entry<VTimestamp, V> floorEntry(VTimestamp timestamp) {
+		return floor(EpochNanos.of(timestamp));
+	}
+
+	/**
+	 * Return the entry with the least timestamp at or after the given one, or
+	 * null if there is none.
+	 */
+	public Map.Entry<VTimestamp, V> ceilingEntry(VTimestamp timestamp) {
+		return ceiling(EpochNanos.of(timestamp));
+	}
+
+	public Map.Entry<VTimestamp, V> firstEntry() {
+		return ceiling(Long.MIN_VALUE);
+	}
+
+	public Map.Entry<VTimestamp, V> lastEntry() {
+		return floor(Long.MAX_VALUE);
+	}
+
+	public void forEach(VTimestamp from, VTimestamp to, EntryConsumer<? super V> consumer) {
+		forEach(EpochNanos.of(from), EpochNanos.of(to), consumer);
+	}
+
+	/**
+	 * Call the consumer with each entry with a timestamp in
+	 * <code>[from, to)</code>, in order. The consumer is called while holding a
+	 * bucket's read lock, so it must not modify the map.
+	 */
+	@SuppressWarnings("unchecked")
+	public void forEach(long fromEpochNanos, long toEpochNanos, EntryConsumer<? super V> consumer) {
+		if (fromEpochNanos >= toEpochNanos) {
+			return;
+		}
+		for (Bucket b : subMap(fromEpochNanos, toEpochNanos).values()) {
+			b.lock.readLock().lock();
+			try {
+				if (b.evicted) {
+					continue;
+				}
+				int end = b.ceiling(toEpochNanos);
+				for (int i = b.ceiling(fromEpochNanos); i < end; i++) {
+					consumer.accept(b.keys[i], (V) b.values[i]);
+				}
+			} finally {
+				b.lock.readLock().unlock();
+			}
+		}
+	}
+
+	/**
+	 * Return an iterator over the entries with timestamps in
+	 * <code>[from, to)</code>, in order. The iterator copies each bucket's
+	 * entries in the range when it reaches the bucket.
+	 */
+	public Iterator<Map.Entry<VTimestamp, V>> iterator(VTimestamp from, VTimestamp to) {
+		long fromEpochNanos = EpochNanos.of(from);
+		long toEpochNanos = EpochNanos.of(to);
+		Iterator<Bucket> it = fromEpochNanos < toEpochNanos ? subMap(fromEpochNanos, toEpochNanos).values().iterator()
+				: Collections.emptyIterator();
+		return new Iterator<Map.Entry<VTimestamp, V>>() {
+			private long[] keys = new long[0];
+			private Object[] values;
+			private int position;
+
+			@Override
+			public boolean hasNext() {
+				while (position == keys.length) {
+					if (!it.hasNext()) {
+						return false;
+					}
+					Bucket b = it.next();
+					b.lock.readLock().lock();
+					try {
+						if (b.evicted) {
+							continue;
+						}
+						int start = b.ceiling(fromEpochNanos);
+						int end = b.ceiling(toEpochNanos);
+						keys = Arrays.copyOfRange(b.keys, start, end);
+						values = Arrays.copyOfRange(b.values, start, end);
+						position = 0;
+					} finally {
+						b.lock.readLock().unlock();
+					}
+				}
+				return true;
+			}
+
+			@Override
+			@SuppressWarnings("unchecked")
+			public Map.Entry<VTimestamp, V> next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				int i = position++;
+				return new AbstractMap.SimpleImmutableEntry<>(EpochNanos.toTimestamp(keys[i]), (V) values[i]);
+			}
+		};
+	}
+
+	/**
+	 * Drop every bucket that ends at or before the given timestamp. Entries
+	 * before the timestamp in the bucket that contains it are kept.
+	 *
+	 * @return the number of entries dropped
+	 */
+	public long evictBefore(VTimestamp timestamp) {
+		long dropped = 0;
+		ConcurrentNavigableMap<Long, Bucket> head = buckets
+				.headMap(Math.floorDiv(EpochNanos.of(timestamp), bucketNanos));
+		for (Map.Entry<Long, Bucket> e : head.entrySet()) {
+			Bucket b = e.getValue();
+			// remove first, so that a put that sees the bucket evicted gets a
+			// new one rather than finding this one again
+			if (!buckets.remove(e.getKey(), b)) {
+				continue;
+			}
+			b.lock.writeLock().lock();
+			try {
+				if (!b.evicted) {
+					b.evicted = true;
+					dropped += b.size;
+					size.add(-b.size);
+				}
+			} finally {
+				b.lock.writeLock().unlock();
+			}
+		}
+		return dropped;
+	}
+
+	private Map.Entry<VTimestamp, V> floor(long key) {
+		for (Bucket b : buckets.headMap(Math.floorDiv(key, bucketNanos), true).descendingMap().values()) {
+			b.lock.readLock().lock();
+			try {
+				int i = b.evicted ? -1 : b.search(key);
+				i = i >= 0 ? i : -i - 2;
+				if (i >= 0) {
+					return entry(b, i);
+				}
+			} finally {
+				b.lock.readLock().unlock();
+			}
+		}
+		return null;
+	}
+
+	private Map.Entry<VTimestamp, V> ceiling(long key) {
+		for (Bucket b : buckets.tailMap(Math.floorDiv(key, bucketNanos), true).values()) {
+			b.lock.readLock().lock();
+			try {
+				int i = b.ceiling(key);
+				if (!b.evicted && i < b.size) {
+					return entry(b, i);
+				}
+			} finally {
+				b.lock.readLock().unlock();
+			}
+		}
+		return null;
+	}
+
+	private ConcurrentNavigableMap<Long, Bucket> subMap(long fromEpochNanos, long toEpochNanos) {
+		// the bucket containing toEpochNanos may have entries before it
+		return buckets.subMap(Math.floorDiv(fromEpochNanos, bucketNanos), true,
+				Math.floorDiv(toEpochNanos, bucketNanos), true);
+	}
+
+	@SuppressWarnings("unchecked")
+	private Map.Entry<VTimestamp, V> entry(Bucket b, int i) {
+		return new AbstractMap.SimpleImmutableEntry<>(EpochNanos.toTimestamp(b.keys[i]), (V) b.values[i]);
+	}
+
+}
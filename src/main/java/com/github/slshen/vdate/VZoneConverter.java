@@ -0,0 +1,224 @@
+package com.github.slshen.vdate;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Converts whole columns of epoch millis to local dates and times in a zone,
+ * the bulk equivalent of <code>new VTimestamp(ms).toDateTime(zone)</code>.
+ *
+ * <p>
+ * The results are returned as parallel arrays of epoch-days, nanos-of-day and
+ * offsets rather than objects. Offsets are looked up in a table of the zone's
+ * transitions over the range of the input; consecutive values between the same
+ * two transitions (as in sorted or clustered input) reuse the previous offset
+ * without a lookup. Large arrays are converted in parallel.
+ */
+public class VZoneConverter {
+
+	private static final int MAX_TRANSITIONS = 1 << 16;
+	private static final long SECONDS_PER_DAY = 86_400;
+	private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+	private final ZoneId zoneId;
+	private final ZoneRules rules;
+	private final ForkJoinPool pool;
+
+	public VZoneConverter(ZoneId zoneId) {
+		this(zoneId, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * @param pool
+	 *            the pool to convert large arrays on, or <code>null</code> to
+	 *            always convert on the calling thread
+	 */
+	public VZoneConverter(ZoneId zoneId, ForkJoinPool pool) {
+		Objects.requireNonNull(zoneId, "zoneId");
+		this.zoneId = zoneId;
+		this.rules = zoneId.getRules();
+		this.pool = pool;
+	}
+
+	public ZoneId getZoneId() {
+		return zoneId;
+	}
+
+	public Columns convert(long[] epochMillis) {
+		int n = epochMillis.length;
+		Columns columns = new Columns(zoneId, new int[n], new long[n], new int[n]);
+		convert(epochMillis, 0, n, columns.epochDays, columns.nanosOfDay, columns.offsetSeconds);
+		return columns;
+	}
+
+	/**
+	 * Convert <code>epochMillis[from, to)</code> into the same positions of the
+	 * output arrays.
+	 *
+	 * @throws ArithmeticException
+	 *             if an epoch-day does not fit in an int
+	 */
+	public void convert(long[] epochMillis, int from, int to, int[] epochDays, long[] nanosOfDay, int[] offsetSeconds) {
+		if (from < 0 || to > epochMillis.length || from > to) {
+			throw new ArrayIndexOutOfBoundsException("[" + from + ", " + to + ")");
+		}
+		Table table = rules.isFixedOffset() ? null : Table.of(rules, epochMillis, from, to);
+		Parallel.forEachRange(pool, to - from, (start, end) -> convertRange(epochMillis, from + start, from + end,
+				table, epochDays, nanosOfDay, offsetSeconds));
+	}
+
+	private void convertRange(long[] epochMillis, int from, int to, Table table, int[] epochDays,
+			long[] nanosOfDay, int[] offsetSeconds) {
+		OffsetWindow window = table == null ? new OffsetWindow(rules) : null;
+		long windowStart = Long.MAX_VALUE;
+		long windowEnd = Long.MIN_VALUE;
+		int offset = 0;
+		for (int i = from; i < to; i++) {
+			long ms = epochMillis[i];
+			long second = Math.floorDiv(ms, 1000);
+			if (second < windowStart || second >= windowEnd) {
+				if (table != null) {
+					int k = table.indexOf(second);
+					windowStart = table.starts[k];
+					windowEnd = k + 1 < table.starts.length ? table.starts[k + 1] : Long.MAX_VALUE;
+					offset = table.offsets[k];
+				} else {
+					offset = window.offsetAt(second);
+					windowStart = window.getStart();
+					windowEnd = window.getEnd();
+				}
+			}
+			long local = second + offset;
+			long day = Math.floorDiv(local, SECONDS_PER_DAY);
+			epochDays[i] = Math.toIntExact(day);
+			nanosOfDay[i] = (local - day * SECONDS_PER_DAY) * NANOS_PER_SECOND + Math.floorMod(ms, 1000) * 1_000_000L;
+			offsetSeconds[i] = offset;
+		}
+	}
+
+	/**
+	 * The offsets of a zone between its transitions over a range of instants.
+	 * <code>offsets[k]</code> applies from <code>starts[k]</code> until
+	 * <code>starts[k + 1]</code>.
+	 */
+	private static class Table {
+		final long[] starts;
+		final int[] offsets;
+
+		Table(long[] starts, int[] offsets) {
+			this.starts = starts;
+			this.offsets = offsets;
+		}
+
+		static Table of(ZoneRules rules, long[] epochMillis, int from, int to) {
+			if (from == to) {
+				return null;
+			}
+			long min = Long.MAX_VALUE;
+			long max = Long.MIN_VALUE;
+			for (int i = from; i < to; i++) {
+				min = Math.min(min, epochMillis[i]);
+				max = Math.max(max, epochMillis[i]);
+			}
+			long maxSecond = Math.floorDiv(max, 1000);
+			Instant instant = Instant.ofEpochSecond(Math.floorDiv(min, 1000));
+			long[] starts = new long[16];
+			int[] offsets = new int[16];
+			starts[0] = Long.MIN_VALUE;
+			offsets[0] = rules.getOffset(instant).getTotalSeconds();
+			int n = 1;
+			ZoneOffsetTransition t;
+			while ((t = rules.nextTransition(instant)) != null && t.toEpochSecond() <= maxSecond) {
+				if (n == MAX_TRANSITIONS) {
+					// too many transitions, fall back to looking them up as needed
+					return null;
+				}
+				if (n == starts.length) {
+					starts = Arrays.copyOf(starts, n * 2);
+					offsets = Arrays.copyOf(offsets, n * 2);
+				}
+				starts[n] = t.toEpochSecond();
+				offsets[n] = t.getOffsetAfter().getTotalSeconds();
+				n++;
+				instant = t.getInstant();
+			}
+			return new Table(Arrays.copyOf(starts, n), Arrays.copyOf(offsets, n));
+		}
+
+		int indexOf(long epochSecond) {
+			int k = Arrays.binarySearch(starts, epochSecond);
+			return k >= 0 ? k : -k - 2;
+		}
+	}
+
+	/**
+	 * The converted columns: position <code>i</code> of each array describes the
+	 * <code>i</code>th input value.
+	 */
+	public static class Columns {
+		private final ZoneId zoneId;
+		private final int[] epochDays;
+		private final long[] nanosOfDay;
+		private final int[] offsetSeconds;
+
+		Columns(ZoneId zoneId, int[] epochDays, long[] nanosOfDay, int[] offsetSeconds) {
+			this.zoneId = zoneId;
+			this.epochDays = epochDays;
+			this.nanosOfDay = nanosOfDay;
+			this.offsetSeconds = offsetSeconds;
+		}
+
+		public int size() {
+			return epochDays.length;
+		}
+
+		/**
+		 * The local date as days since 1970-01-01, see
+		 * {@link LocalDate#toEpochDay()}.
+		 */
+		public int[] getEpochDays() {
+			return epochDays;
+		}
+
+		/**
+		 * The local time as nanos since midnight, see
+		 * {@link LocalTime#toNanoOfDay()}.
+		 */
+		public long[] getNanosOfDay() {
+			return nanosOfDay;
+		}
+
+		/**
+		 * The zone offset in seconds, see {@link ZoneOffset#getTotalSeconds()}.
+		 */
+		public int[] getOffsetSeconds() {
+			return offsetSeconds;
+		}
+
+		public VDate getDate(int i) {
+			return VDate.ofEpochDay(epochDays[i]);
+		}
+
+		public VTimeOfDay getTimeOfDay(int i) {
+			return new VTimeOfDay(LocalTime.ofNanoOfDay(nanosOfDay[i]));
+		}
+
+		public VDateTime getDateTime(int i) {
+			LocalDateTime local = LocalDateTime.of(LocalDate.ofEpochDay(epochDays[i]),
+					LocalTime.ofNanoOfDay(nanosOfDay[i]));
+			return new VDateTime(
+					ZonedDateTime.ofStrict(local, ZoneOffset.ofTotalSeconds(offsetSeconds[i]), zoneId));
+		}
+	}
+
+}
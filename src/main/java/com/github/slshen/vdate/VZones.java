@@ -0,0 +1,287 @@
+package com.github.slshen.vdate;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.zone.ZoneRules;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A registry of the zones used by parsing, which caches resolved
+ * {@link ZoneId}s and their {@link ZoneRules}.
+ *
+ * <p>
+ * Zones are looked up by {@link CharSequence} (or a range of one) without
+ * creating a String once the text has been seen. Text is first mapped through
+ * the alias table, which defaults to {@link ZoneId#SHORT_IDS} so that e.g.
+ * <code>PST</code> resolves to <code>America/Los_Angeles</code>, as in
+ * {@link ZoneId#of(String, Map)}. Lookups read a copy-on-write hash table
+ * without locking; up to {@value #MAX_CACHED} different strings are cached.
+ *
+ * <p>
+ * Each distinct zone is also given a small integer index, in order of first
+ * use, which can stand in for the zone in compact encodings within a JVM; see
+ * {@link #indexOf(ZoneId)} and {@link #zoneAt(int)}. As the order of first use
+ * varies from run to run, indexes must not be persisted or sent to other
+ * processes; store zone ids instead.
+ *
+ * <p>
+ * Zones listed (comma separated) in the system property
+ * <code>vdate.zones.preload</code> are resolved, and their rules loaded, when
+ * this class is initialized; names that are not zones are logged and skipped.
+ * Additional aliases may be given in <code>vdate.zones.aliases</code> as comma
+ * separated <code>alias=zone</code> pairs.
+ */
+public final class VZones {
+
+	static final int MAX_CACHED = 4096;
+
+	private static final class Entry {
+		final String key;
+		final int hash;
+		final int index;
+
+		Entry(String key, int hash, int index) {
+			this.key = key;
+			this.hash = hash;
+			this.index = index;
+		}
+
+		boolean matches(CharSequence text, int start, int end, int hash) {
+			if (this.hash != hash || key.length() != end - start) {
+				return false;
+			}
+			for (int i = start; i < end; i++) {
+				if (key.charAt(i - start) != text.charAt(i)) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	private static final ReentrantLock LOCK = new ReentrantLock();
+	private static volatile Entry[] table = new Entry[64];
+	private static int cached;
+	private static volatile ZoneId[] zones = new ZoneId[0];
+	private static volatile ZoneRules[] rules = new ZoneRules[0];
+	private static final Map<ZoneId, Integer> INDEXES = new HashMap<>();
+	private static volatile Map<String, String> aliases = ZoneId.SHORT_IDS;
+
+	static {
+		String configured = System.getProperty("vdate.zones.aliases");
+		if (configured != null && !configured.trim().isEmpty()) {
+			Map<String, String> map = new HashMap<>(ZoneId.SHORT_IDS);
+			for (String pair : configured.split(",")) {
+				int eq = pair.indexOf('=');
+				if (eq > 0) {
+					map.put(pair.substring(0, eq).trim(), pair.substring(eq + 1).trim());
+				}
+			}
+			aliases = Collections.unmodifiableMap(map);
+		}
+		String preload = System.getProperty("vdate.zones.preload");
+		if (preload != null && !preload.trim().isEmpty()) {
+			for (String name : preload.split(",")) {
+				try {
+					preload(Collections.singletonList(name));
+				} catch (DateTimeException e) {
+					System.getLogger(VZones.class.getName()).log(System.Logger.Level.WARNING,
+							"ignoring vdate.zones.preload entry " + name.trim() + ": " + e.getMessage());
+				}
+			}
+		}
+	}
+
+	private VZones() {
+	}
+
+	public static ZoneId resolve(CharSequence text) {
+		return resolve(text, 0, text.length());
+	}
+
+	/**
+	 * Resolve the zone named by <code>text[start, end)</code>.
+	 *
+	 * @throws DateTimeException
+	 *             if the text does not name a zone
+	 */
+	public static ZoneId resolve(CharSequence text, int start, int end) {
+		// look up first, as the arrays may be replaced by the lookup
+		int index = index(text, start, end);
+		return zones[index];
+	}
+
+	public static ZoneRules rules(CharSequence text, int start, int end) {
+		int index = index(text, start, end);
+		return rules[index];
+	}
+
+	/**
+	 * Return the index of the zone named by <code>text[start, end)</code>.
+	 *
+	 * @throws DateTimeException
+	 *             if the text does not name a zone
+	 */
+	public static int index(CharSequence text, int start, int end) {
+		int hash = hash(text, start, end);
+		Entry[] t = table;
+		int mask = t.length - 1;
+		for (int i = hash & mask;; i = (i + 1) & mask) {
+			Entry e = t[i];
+			if (e == null) {
+				return load(text.subSequence(start, end).toString(), hash);
+			}
+			if (e.matches(text, start, end, hash)) {
+				if (VMetrics.ENABLED) {
+					VMetrics.increment(VMetrics.Counter.ZONE_LOOKUP);
+				}
+				return e.index;
+			}
+		}
+	}
+
+	/**
+	 * Return the index of a zone, assigning one if it has not been seen before.
+	 * Indexes are only meaningful within this JVM.
+	 */
+	public static int indexOf(ZoneId zoneId) {
+		LOCK.lock();
+		try {
+			Integer index = INDEXES.get(zoneId);
+			if (index != null) {
+				return index;
+			}
+			int n = zones.length;
+			ZoneRules zoneRules = zoneId.getRules();
+			// load the transitions now rather than on first use
+			zoneRules.getOffset(Instant.now());
+			ZoneRules[] r = Arrays.copyOf(rules, n + 1);
+			r[n] = zoneRules;
+			rules = r;
+			ZoneId[] z = Arrays.copyOf(zones, n + 1);
+			z[n] = zoneId;
+			zones = z;
+			INDEXES.put(zoneId, n);
+			return n;
+		} finally {
+			LOCK.unlock();
+		}
+	}
+
+	/**
+	 * @throws IndexOutOfBoundsException
+	 *             if no zone has the index
+	 */
+	public static ZoneId zoneAt(int index) {
+		return zones[index];
+	}
+
+	public static ZoneRules rulesAt(int index) {
+		return rules[index];
+	}
+
+	/**
+	 * Return the number of zones that have an index.
+	 */
+	public static int size() {
+		return zones.length;
+	}
+
+	/**
+	 * Resolve zones ahead of time, e.g. at startup.
+	 *
+	 * @throws DateTimeException
+	 *             if a name does not name a zone
+	 */
+	public static void preload(Collection<String> names) {
+		for (String name : names) {
+			String trimmed = name.trim();
+			if (!trimmed.isEmpty()) {
+				resolve(trimmed);
+			}
+		}
+	}
+
+	public static Map<String, String> getAliases() {
+		return aliases;
+	}
+
+	/**
+	 * Replace the alias table, e.g. with an empty map to turn aliases off. This
+	 * also clears the cache of resolved names (but not the zone indexes.)
+	 */
+	public static void setAliases(Map<String, String> aliases) {
+		Map<String, String> copy = Collections.unmodifiableMap(new HashMap<>(aliases));
+		LOCK.lock();
+		try {
+			VZones.aliases = copy;
+			table = new Entry[64];
+			cached = 0;
+		} finally {
+			LOCK.unlock();
+		}
+	}
+
+	private static int load(String text, int hash) {
+		if (VMetrics.ENABLED) {
+			VMetrics.increment(VMetrics.Counter.ZONE_CACHE_MISS);
+		}
+		// hold the lock from the alias lookup to the insert, so that a
+		// concurrent setAliases cannot leave a stale alias in the new table
+		LOCK.lock();
+		try {
+			String id = aliases.getOrDefault(text, text);
+			int index = indexOf(VMetrics.zoneOf(id));
+			if (cached < MAX_CACHED) {
+				Entry[] t = table;
+				if ((cached + 1) * 2 > t.length) {
+					Entry[] grown = new Entry[t.length * 2];
+					for (Entry e : t) {
+						if (e != null) {
+							insert(grown, e);
+						}
+					}
+					t = grown;
+				} else {
+					t = t.clone();
+				}
+				if (insert(t, new Entry(text, hash, index))) {
+					cached++;
+				}
+				table = t;
+			}
+			return index;
+		} finally {
+			LOCK.unlock();
+		}
+	}
+
+	private static boolean insert(Entry[] t, Entry entry) {
+		int mask = t.length - 1;
+		for (int i = entry.hash & mask;; i = (i + 1) & mask) {
+			if (t[i] == null) {
+				t[i] = entry;
+				return true;
+			}
+			if (t[i].key.equals(entry.key)) {
+				// another thread got here first
+				return false;
+			}
+		}
+	}
+
+	private static int hash(CharSequence text, int start, int end) {
+		int h = 0;
+		for (int i = start; i < end; i++) {
+			h = 31 * h + text.charAt(i);
+		}
+		return h ^ (h >>> 16);
+	}
+
+}
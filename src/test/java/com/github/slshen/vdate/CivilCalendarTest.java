@@ -0,0 +1,60 @@
+package com.github.slshen.vdate;
+
+import java.time.LocalDate;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+public class CivilCalendarTest {
+
+	private static void check(LocalDate date) {
+		long epochDay = date.toEpochDay();
+		long packed = CivilCalendar.fromEpochDay(epochDay);
+		if (CivilCalendar.year(packed) != date.getYear() || CivilCalendar.month(packed) != date.getMonthValue()
+				|| CivilCalendar.day(packed) != date.getDayOfMonth()
+				|| CivilCalendar.toEpochDay(date.getYear(), date.getMonthValue(), date.getDayOfMonth()) != epochDay
+				|| CivilCalendar.dayOfWeek(epochDay) != date.getDayOfWeek().getValue()
+				|| CivilCalendar.dayOfYear(epochDay) != date.getDayOfYear()) {
+			Assertions.fail("mismatch at " + date);
+		}
+	}
+
+	@Test
+	public void testTableRange() {
+		// every day of the tables, and a few years either side
+		LocalDate end = LocalDate.of(CivilCalendar.MAX_TABLE_YEAR + 3, 1, 1);
+		for (LocalDate date = LocalDate.of(CivilCalendar.MIN_TABLE_YEAR - 3, 1, 1); date.isBefore(end); date = date
+				.plusDays(1)) {
+			check(date);
+		}
+	}
+
+	@Test
+	public void testOutsideTables() {
+		for (long epochDay = LocalDate.MIN.toEpochDay(); epochDay < LocalDate.MIN.toEpochDay() + 1000; epochDay++) {
+			check(LocalDate.ofEpochDay(epochDay));
+		}
+		for (long epochDay = LocalDate.MAX.toEpochDay(); epochDay > LocalDate.MAX.toEpochDay() - 1000; epochDay--) {
+			check(LocalDate.ofEpochDay(epochDay));
+		}
+		for (int year = -100_000; year <= 100_000; year += 7) {
+			check(LocalDate.of(year, 2, 28));
+			check(LocalDate.of(year, 3, 1));
+			check(LocalDate.of(year, 12, 31));
+		}
+	}
+
+	@Test
+	public void testParseYears() {
+		Assertions.assertThat(CivilCalendar.parseYears("1900-2100")).containsExactly(1900, 2100);
+		Assertions.assertThat(CivilCalendar.parseYears(" 1900 - 2100 ")).containsExactly(1900, 2100);
+		Assertions.assertThat(CivilCalendar.parseYears("2000")).containsExactly(2000, 2000);
+		Assertions.assertThat(CivilCalendar.parseYears("-100-200")).containsExactly(-100, 200);
+		Assertions.assertThat(CivilCalendar.parseYears("-100--50")).containsExactly(-100, -50);
+		for (String bad : new String[] { "", "abc", "1900-", "2100-1900", "1900-2100-2200" }) {
+			Assertions.assertThatThrownBy(() -> CivilCalendar.parseYears(bad))
+					.isInstanceOf(IllegalArgumentException.class);
+		}
+	}
+
+}
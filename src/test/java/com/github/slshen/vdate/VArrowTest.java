@@ -0,0 +1,105 @@
+package com.github.slshen.vdate;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.Period;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+public class VArrowTest {
+
+	@Test
+	public void testDates() {
+		List<VDate> dates = Arrays.asList(new VDate("1970-01-02"), null, new VDate("1969-12-31"),
+				new VDate("2018-03-11"), null, null, null, null, new VDate("2000-02-29"));
+		VArrow.DateColumn column = VArrow.dates(dates);
+		Assertions.assertThat(column).containsExactlyElementsOf(dates);
+		Assertions.assertThat(column.getNullCount()).isEqualTo(5);
+		Assertions.assertThat(column.getEpochDay(0)).isEqualTo(1);
+		Assertions.assertThat(column.getEpochDay(2)).isEqualTo(-1);
+		VDateTimeCursor cursor = new VDateTimeCursor(new VDateTime("2000-01-01 10:30 UTC"));
+		Assertions.assertThat(column.read(3, cursor).toDateTime().toString()).isEqualTo("2018-03-11T10:30Z[UTC]");
+		ByteBuffer validity = column.getValidityBuffer();
+		Assertions.assertThat(validity.isDirect()).isTrue();
+		Assertions.assertThat(validity.capacity()).isEqualTo(64);
+		Assertions.assertThat(validity.get(0)).isEqualTo((byte) 0b1101);
+		Assertions.assertThat(validity.get(1)).isEqualTo((byte) 1);
+		Assertions.assertThat(column.getDataBuffer().capacity()).isEqualTo(64);
+	}
+
+	@Test
+	public void testTimestamps() {
+		List<VTimestamp> timestamps = Arrays.asList(new VTimestamp("2018-03-11T10:15:30.123456789Z"), null,
+				new VTimestamp("1960-01-01T00:00:00.5Z"));
+		VArrow.TimestampColumn micros = VArrow.timestamps(timestamps, TimeUnit.MICROSECONDS,
+				ZoneId.of("America/New_York"));
+		Assertions.assertThat(micros.get(0).toInstant()).isEqualTo(Instant.parse("2018-03-11T10:15:30.123456Z"));
+		Assertions.assertThat(micros.get(1)).isNull();
+		Assertions.assertThat(micros.get(2)).isEqualTo(timestamps.get(2));
+		Assertions.assertThat(micros.getLong(2)).isEqualTo(-315619200L * 1_000_000 + 500_000);
+		Assertions.assertThat(micros.getDateTime(0).toString()).startsWith("2018-03-11T06:15:30.123456-04:00");
+		Assertions.assertThat(micros.getEpochSecond(2)).isEqualTo(-315619200L);
+		Assertions.assertThat(micros.getNano(2)).isEqualTo(500_000_000);
+		VDateTimeCursor cursor = new VDateTimeCursor(VDateTime.UTC);
+		Assertions.assertThat(micros.read(0, cursor).getHour()).isEqualTo(10);
+		Assertions.assertThat(cursor.getNano()).isEqualTo(123_456_000);
+		Assertions.assertThat(micros.read(2, cursor).toTimestamp()).isEqualTo(timestamps.get(2));
+		VArrow.TimestampColumn seconds = VArrow.timestamps(timestamps, TimeUnit.SECONDS, null);
+		Assertions.assertThat(seconds.getLong(0)).isEqualTo(1520763330L);
+		Assertions.assertThatThrownBy(() -> VArrow.timestamps(
+				Collections.singletonList(new VTimestamp(Instant.ofEpochSecond(10_000_000_000L))),
+				TimeUnit.NANOSECONDS, null)).isInstanceOf(ArithmeticException.class);
+		Assertions.assertThatThrownBy(() -> VArrow.timestamps(timestamps, TimeUnit.DAYS, null))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	public void testTimes() {
+		List<VTimeOfDay> times = Arrays.asList(new VTimeOfDay("23:59:59.999999999"), VTimeOfDay.MIDNIGHT, null);
+		VArrow.TimeColumn nanos = VArrow.times(times, TimeUnit.NANOSECONDS);
+		Assertions.assertThat(nanos).containsExactlyElementsOf(times);
+		VArrow.TimeColumn micros = VArrow.times(times, TimeUnit.MICROSECONDS);
+		Assertions.assertThat(micros.getLong(0)).isEqualTo(86_399_999_999L);
+		Assertions.assertThat(micros.getNanoOfDay(0)).isEqualTo(86_399_999_999_000L);
+		Assertions.assertThatThrownBy(() -> VArrow.times(times, TimeUnit.MILLISECONDS))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	public void testIntervals() {
+		VInterval interval = new VInterval(Period.of(1, 2, 3), Duration.ofHours(4).plusNanos(5));
+		VArrow.IntervalColumn column = VArrow.intervals(Arrays.asList(interval, null, VInterval.ZERO));
+		Assertions.assertThat(column).containsExactly(interval, null, VInterval.ZERO);
+		ByteBuffer data = column.getDataBuffer();
+		Assertions.assertThat(data.getInt(0)).isEqualTo(14);
+		Assertions.assertThat(data.getInt(4)).isEqualTo(3);
+		Assertions.assertThat(data.getLong(8)).isEqualTo(4 * 3_600_000_000_000L + 5);
+		Assertions.assertThat(column.getMonths(0)).isEqualTo(14);
+		Assertions.assertThat(column.getDays(0)).isEqualTo(3);
+		Assertions.assertThat(column.getNanos(0)).isEqualTo(4 * 3_600_000_000_000L + 5);
+		Assertions.assertThat(column.getNanos(1)).isZero();
+		Assertions.assertThat(VArrow.intervals(Collections.singletonList(new VInterval(Period.ofMonths(14))))
+				.get(0)).isEqualTo(new VInterval(Period.of(1, 2, 0)));
+	}
+
+	@Test
+	public void testWrap() {
+		ByteBuffer data = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+		data.putInt(0, 0).putInt(4, 365).putInt(8, -365);
+		VArrow.DateColumn column = new VArrow.DateColumn(3, null, data);
+		Assertions.assertThat(column.getNullCount()).isZero();
+		Assertions.assertThat(column).extracting(VDate::toString).containsExactly("1970-01-01", "1971-01-01",
+				"1969-01-01");
+		Assertions.assertThatThrownBy(() -> new VArrow.DateColumn(4, null, data))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+}
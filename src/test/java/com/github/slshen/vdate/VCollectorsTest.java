@@ -0,0 +1,122 @@
+package com.github.slshen.vdate;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+public class VCollectorsTest {
+
+	private static final ZoneId NEW_YORK = ZoneId.of("America/New_York");
+
+	private static class Event {
+		final VTimestamp ts;
+		final int id;
+
+		Event(VTimestamp ts, int id) {
+			this.ts = ts;
+			this.id = id;
+		}
+	}
+
+	private static List<Event> events(int n) {
+		Random random = new Random(1);
+		long start = Instant.parse("2018-01-01T00:00:00Z").getEpochSecond();
+		List<Event> events = new ArrayList<>();
+		for (int i = 0; i < n; i++) {
+			events.add(new Event(new VTimestamp(Instant.ofEpochSecond(start + random.nextInt(366 * 86_400))), i));
+		}
+		return events;
+	}
+
+	@Test
+	public void testCountingByDay() {
+		List<Event> events = events(100_000);
+		Map<VDate, Long> expected = events.stream()
+				.collect(Collectors.groupingBy(e -> e.ts.toDate(NEW_YORK), TreeMap::new, Collectors.counting()));
+		SortedMap<VDate, Long> actual = events.parallelStream()
+				.collect(VCollectors.countingByDay(e -> e.ts, NEW_YORK));
+		Assertions.assertThat(actual).isEqualTo(expected);
+	}
+
+	@Test
+	public void testCountingByHour() {
+		VDateTime start = new VDateTime("2018-11-04 America/New_York");
+		List<VTimestamp> list = new ArrayList<>();
+		for (int i = 0; i < 4 * 60; i++) {
+			list.add(start.plusInterval(VInterval.of(i, TimeUnit.MINUTES)).toTimestamp());
+		}
+		SortedMap<VDateTime, Long> counts = list.stream().collect(VCollectors.countingByHour(t -> t, NEW_YORK));
+		// 1 AM happens twice
+		Assertions.assertThat(counts).hasSize(4);
+		Assertions.assertThat(counts.values()).containsOnly(60L);
+		Assertions.assertThat(counts.firstKey().toZonedDateTime()).isEqualTo(start.toZonedDateTime());
+	}
+
+	@Test
+	public void testTumbling() {
+		List<Event> events = events(50_000);
+		SortedMap<VDateTime, Long> months = events.parallelStream().collect(VCollectors.tumbling(e -> e.ts,
+				VInterval.of(1, ChronoUnit.MONTHS), NEW_YORK, Collectors.counting()));
+		Map<String, Long> expected = events.stream().collect(Collectors.groupingBy(
+				e -> e.ts.toDate(NEW_YORK).toString().substring(0, 7), TreeMap::new, Collectors.counting()));
+		Assertions.assertThat(months.keySet()).extracting(d -> d.toString().substring(0, 7))
+				.containsExactlyElementsOf(expected.keySet());
+		Assertions.assertThat(months.values()).containsExactlyElementsOf(expected.values());
+		Assertions.assertThat(months.firstKey().getTime()).isEqualTo(VTimeOfDay.MIDNIGHT);
+
+		SortedMap<VDateTime, Long> quarters = events.stream().collect(VCollectors.tumbling(e -> e.ts,
+				VInterval.of(15, TimeUnit.MINUTES), ZoneId.of("UTC"), Collectors.counting()));
+		Assertions.assertThat(quarters.values().stream().mapToLong(Long::longValue).sum()).isEqualTo(50_000);
+		Assertions.assertThat(quarters.keySet()).allMatch(d -> d.getTime().getMinute() % 15 == 0);
+	}
+
+	@Test
+	public void testSliding() {
+		List<VTimestamp> list = new ArrayList<>();
+		for (int day = 1; day <= 10; day++) {
+			list.add(new VDateTime("2018-01-" + day + " 12:00 UTC").toTimestamp());
+		}
+		SortedMap<VDateTime, List<VTimestamp>> windows = list.stream().collect(VCollectors.sliding(t -> t,
+				VInterval.of(3, ChronoUnit.DAYS), VInterval.of(1, ChronoUnit.DAYS), ZoneId.of("UTC"),
+				Collectors.toList()));
+		Assertions.assertThat(windows).hasSize(12);
+		Assertions.assertThat(windows.get(new VDateTime("2018-01-05 UTC"))).hasSize(3);
+		Assertions.assertThat(windows.get(new VDateTime("2017-12-30 UTC"))).hasSize(1);
+	}
+
+	@Test
+	public void testFirstLast() {
+		List<Event> events = events(10_000);
+		events.add(new Event(new VTimestamp(Instant.parse("2017-06-01T00:00:00Z")), -1));
+		events.add(new Event(new VTimestamp(Instant.parse("2017-06-01T00:00:00Z")), -2));
+		events.add(new Event(new VTimestamp(Instant.parse("2019-06-01T00:00:00Z")), -3));
+		events.add(new Event(new VTimestamp(Instant.parse("2019-06-01T00:00:00Z")), -4));
+		Assertions.assertThat(events.parallelStream().collect(VCollectors.first(e -> e.ts)).get().id).isEqualTo(-1);
+		Assertions.assertThat(events.parallelStream().collect(VCollectors.last(e -> e.ts)).get().id).isEqualTo(-4);
+		Assertions.assertThat(events.parallelStream().collect(VCollectors.minTimestamp(e -> e.ts)))
+				.contains(new VTimestamp(Instant.parse("2017-06-01T00:00:00Z")));
+		Assertions.assertThat(events.stream().collect(VCollectors.maxTimestamp(e -> e.ts)))
+				.contains(new VTimestamp(Instant.parse("2019-06-01T00:00:00Z")));
+		Assertions.assertThat(new ArrayList<Event>().stream().collect(VCollectors.first(e -> e.ts)))
+				.isEqualTo(Optional.empty());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMixedInterval() {
+		VCollectors.tumbling(t -> (VTimestamp) t, VInterval.of(1, ChronoUnit.DAYS).plus(1, TimeUnit.HOURS),
+				NEW_YORK, Collectors.counting());
+	}
+
+}
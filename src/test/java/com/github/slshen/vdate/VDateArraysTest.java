@@ -0,0 +1,95 @@
+package com.github.slshen.vdate;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntUnaryOperator;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+public class VDateArraysTest {
+
+	private static final int[] DAYS = randomDays(300_000);
+
+	@Test
+	public void testCivilCalendar() {
+		for (long d = -800_000; d < 800_000; d++) {
+			LocalDate date = LocalDate.ofEpochDay(d);
+			long packed = CivilCalendar.fromEpochDay(d);
+			Assertions.assertThat(CivilCalendar.year(packed)).isEqualTo(date.getYear());
+			Assertions.assertThat(CivilCalendar.month(packed)).isEqualTo(date.getMonthValue());
+			Assertions.assertThat(CivilCalendar.day(packed)).isEqualTo(date.getDayOfMonth());
+			Assertions.assertThat(CivilCalendar.toEpochDay(date.getYear(), date.getMonthValue(), date.getDayOfMonth()))
+					.isEqualTo(d);
+		}
+	}
+
+	@Test
+	public void testPlus() {
+		VDateArrays arrays = new VDateArrays();
+		int[] dst = new int[DAYS.length];
+		arrays.plusMonths(DAYS, 1, dst);
+		check(dst, d -> (int) LocalDate.ofEpochDay(d).plusMonths(1).toEpochDay());
+		arrays.plusYears(DAYS, -3, dst);
+		check(dst, d -> (int) LocalDate.ofEpochDay(d).plusYears(-3).toEpochDay());
+		VInterval interval = VInterval.of(1, ChronoUnit.YEARS).plus(1, ChronoUnit.MONTHS).plus(3, TimeUnit.DAYS);
+		arrays.plusInterval(DAYS, interval, dst);
+		check(dst, d -> (int) LocalDate.ofEpochDay(d).plus(interval.getPeriod()).toEpochDay());
+		arrays.minusInterval(DAYS, interval, dst);
+		check(dst, d -> (int) LocalDate.ofEpochDay(d).minus(interval.getPeriod()).toEpochDay());
+		arrays.plusDays(DAYS, 10, dst);
+		check(dst, d -> d + 10);
+	}
+
+	@Test
+	public void testBetween() {
+		VDate base = new VDate("2018-01-31");
+		int[] dst = new int[DAYS.length];
+		VDateArrays arrays = new VDateArrays(null);
+		arrays.monthsBetween(base, DAYS, dst);
+		check(dst, d -> (int) base.monthsBetween(VDateArrays.toDate(d)));
+		arrays.daysBetween(base, DAYS, dst);
+		check(dst, d -> (int) base.daysBetween(VDateArrays.toDate(d)));
+	}
+
+	@Test
+	public void testFields() {
+		int[] dst = new int[DAYS.length];
+		VDateArrays arrays = new VDateArrays(new ForkJoinPool(3));
+		arrays.dayOfWeek(DAYS, dst);
+		check(dst, d -> LocalDate.ofEpochDay(d).getDayOfWeek().getValue());
+		arrays.endOfMonth(DAYS, dst);
+		check(dst, d -> (int) LocalDate.ofEpochDay(d).with(TemporalAdjusters.lastDayOfMonth()).toEpochDay());
+	}
+
+	@Test
+	public void testInPlace() {
+		int[] days = VDateArrays.toEpochDays(new VDate("2018-01-31"), new VDate("2020-02-29"));
+		new VDateArrays().plusMonths(days, 1, days);
+		Assertions.assertThat(VDateArrays.toDate(days[0])).isEqualTo(new VDate("2018-02-28"));
+		Assertions.assertThat(VDateArrays.toDate(days[1])).isEqualTo(new VDate("2020-03-29"));
+	}
+
+	private static void check(int[] actual, IntUnaryOperator expected) {
+		for (int i = 0; i < DAYS.length; i++) {
+			int e = expected.applyAsInt(DAYS[i]);
+			if (actual[i] != e) {
+				Assertions.fail(LocalDate.ofEpochDay(DAYS[i]) + ": expected " + e + " got " + actual[i]);
+			}
+		}
+	}
+
+	private static int[] randomDays(int n) {
+		Random random = new Random(1);
+		int[] days = new int[n];
+		for (int i = 0; i < n; i++) {
+			days[i] = random.nextInt(1_500_000) - 750_000;
+		}
+		return days;
+	}
+
+}
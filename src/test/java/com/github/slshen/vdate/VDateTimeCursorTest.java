@@ -0,0 +1,88 @@
+package com.github.slshen.vdate;
+
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.Period;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+public class VDateTimeCursorTest {
+
+	private static final ZoneId NEW_YORK = ZoneId.of("America/New_York");
+
+	private static VDateTime at(String local, ZoneId zoneId) {
+		return new VDateTime(ZonedDateTime.of(LocalDateTime.parse(local), zoneId));
+	}
+
+	@Test
+	public void testMatchesVDateTime() {
+		List<VInterval> intervals = Arrays.asList(new VInterval(Period.ofDays(1)), new VInterval(Period.ofMonths(1)),
+				new VInterval(Period.of(1, 1, 1), Duration.ofMinutes(30)), new VInterval(Duration.ofHours(1)),
+				new VInterval(Period.ofDays(-3), Duration.ofSeconds(-1, 1)), new VInterval(Duration.ofNanos(-1)));
+		VDateTimeCursor cursor = new VDateTimeCursor(NEW_YORK);
+		// walk across the 2018 transitions by half hours, including the ambiguous
+		// and skipped times
+		for (VDateTime start : Arrays.asList(at("2018-03-10T00:00", NEW_YORK), at("2018-11-03T00:00", NEW_YORK))) {
+			for (int i = 0; i < 2 * 60; i++) {
+				VDateTime dt = start.plusInterval(new VInterval(Duration.ofMinutes(30L * i)));
+				for (VInterval interval : intervals) {
+					cursor.set(dt).plusInterval(interval);
+					Assertions.assertThat(cursor.toString()).isEqualTo(dt.plusInterval(interval).toString());
+					cursor.set(dt).minusInterval(interval);
+					Assertions.assertThat(cursor.toString()).isEqualTo(dt.minusInterval(interval).toString());
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testFields() {
+		VDateTimeCursor cursor = new VDateTimeCursor(at("2016-02-29T13:45:30.5", NEW_YORK));
+		Assertions.assertThat(cursor.getYear()).isEqualTo(2016);
+		Assertions.assertThat(cursor.getMonth()).isEqualTo(2);
+		Assertions.assertThat(cursor.getDay()).isEqualTo(29);
+		Assertions.assertThat(cursor.getDayOfWeek()).isEqualTo(1);
+		Assertions.assertThat(cursor.getHour()).isEqualTo(13);
+		Assertions.assertThat(cursor.getMinute()).isEqualTo(45);
+		Assertions.assertThat(cursor.getSecond()).isEqualTo(30);
+		Assertions.assertThat(cursor.getNano()).isEqualTo(500_000_000);
+		Assertions.assertThat(cursor.getOffsetSeconds()).isEqualTo(-5 * 3600);
+		Assertions.assertThat(cursor.toDate()).isEqualTo(new VDate(2016, 2, 29));
+		Assertions.assertThat(cursor.toTimeOfDay()).isEqualTo(new VTimeOfDay("13:45:30.5"));
+		cursor.plusYears(1);
+		Assertions.assertThat(cursor.toDate()).isEqualTo(new VDate(2017, 2, 28));
+		cursor.setDate(2018, 3, 11).setTime(2, 30, 0, 0);
+		Assertions.assertThat(cursor.toString()).isEqualTo("2018-03-11T03:30-04:00[America/New_York]");
+		cursor.setZoneId(VDateTime.UTC);
+		Assertions.assertThat(cursor.toString()).isEqualTo("2018-03-11T07:30Z");
+		Assertions.assertThatThrownBy(() -> cursor.setDate(2018, 2, 29)).isInstanceOf(DateTimeException.class);
+		Assertions.assertThatThrownBy(() -> cursor.plusYears(1_000_000_000L)).isInstanceOf(DateTimeException.class);
+		Assertions.assertThat(cursor.toString()).isEqualTo("2018-03-11T07:30Z");
+	}
+
+	@Test
+	public void testBoundaries() {
+		// midnight is skipped in Sao Paulo
+		ZoneId saoPaulo = ZoneId.of("America/Sao_Paulo");
+		VDateTimeCursor cursor = new VDateTimeCursor(at("2018-11-04T15:20", saoPaulo));
+		Assertions.assertThat(cursor.toStartOfDay().toString()).isEqualTo("2018-11-04T01:00-02:00[America/Sao_Paulo]");
+		Assertions.assertThat(cursor.set(at("2018-11-17T15:20", saoPaulo)).toStartOfHour().toString())
+				.isEqualTo("2018-11-17T15:00-02:00[America/Sao_Paulo]");
+		Assertions.assertThat(cursor.toStartOfMonth().toString()).isEqualTo("2018-11-01T00:00-03:00[America/Sao_Paulo]");
+		Assertions.assertThat(cursor.toStartOfYear().toString()).isEqualTo("2018-01-01T00:00-02:00[America/Sao_Paulo]");
+
+		cursor.set(at("2018-06-01T00:00", NEW_YORK));
+		Assertions.assertThat(cursor.toNextTransition()).isTrue();
+		Assertions.assertThat(cursor.toString()).isEqualTo("2018-11-04T01:00-05:00[America/New_York]");
+		Assertions.assertThat(cursor.toPreviousTransition()).isTrue();
+		Assertions.assertThat(cursor.toString()).isEqualTo("2018-03-11T03:00-04:00[America/New_York]");
+		Assertions.assertThat(new VDateTimeCursor(VDateTime.UTC).toNextTransition()).isFalse();
+	}
+
+}
@@ -0,0 +1,117 @@
+package com.github.slshen.vdate;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares creating dates and times with and without {@link VIntern}. Run
+ * with <code>-prof gc</code> (as {@link #main} does) to see the difference in
+ * allocation, which is what the tables save on the heap. Run {@link #main}
+ * from an IDE, or from the command line with the test classpath:
+ *
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/classpath.txt
+ * java -cp target/test-classes:target/classes:$(cat target/classpath.txt) com.github.slshen.vdate.VInternBenchmark
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VInternBenchmark {
+
+	private static final int N = 1 << 12;
+
+	@Param({ "false", "true" })
+	public boolean intern;
+
+	private final LocalDate[] dates = new LocalDate[N];
+	private final LocalTime[] times = new LocalTime[N];
+	private final VTimestamp[] timestamps = new VTimestamp[N];
+	private VDate date;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		if (intern) {
+			VIntern.internDates(2000, 2030);
+			VIntern.internTimes(ChronoUnit.MINUTES);
+		} else {
+			VIntern.clear();
+		}
+		for (int i = 0; i < N; i++) {
+			dates[i] = LocalDate.of(2018, 1, 1).plusDays(i % 3650);
+			times[i] = LocalTime.ofSecondOfDay(i % 1440 * 60L);
+			timestamps[i] = new VTimestamp(1_514_764_800_000L + i * 3_600_000L);
+		}
+		date = new VDate(2018, 1, 1);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		VIntern.clear();
+	}
+
+	@Benchmark
+	public VDate[] dateValueOf() {
+		VDate[] result = new VDate[N];
+		for (int i = 0; i < N; i++) {
+			result[i] = VDate.valueOf(dates[i]);
+		}
+		return result;
+	}
+
+	@Benchmark
+	public VTimeOfDay[] timeValueOf() {
+		VTimeOfDay[] result = new VTimeOfDay[N];
+		for (int i = 0; i < N; i++) {
+			result[i] = VTimeOfDay.valueOf(times[i]);
+		}
+		return result;
+	}
+
+	@Benchmark
+	public VDate[] plusDays() {
+		VDate[] result = new VDate[N];
+		for (int i = 0; i < N; i++) {
+			result[i] = date.plusDays(i);
+		}
+		return result;
+	}
+
+	@Benchmark
+	public VDate[] toDate() {
+		VDate[] result = new VDate[N];
+		for (int i = 0; i < N; i++) {
+			result[i] = timestamps[i].toDate(VDateTime.UTC);
+		}
+		return result;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(VInternBenchmark.class.getSimpleName()).addProfiler(GCProfiler.class)
+				.build()).run();
+	}
+
+}
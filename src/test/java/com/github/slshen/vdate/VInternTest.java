@@ -0,0 +1,104 @@
+package com.github.slshen.vdate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Test;
+
+public class VInternTest {
+
+	@After
+	public void clear() {
+		VIntern.clear();
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> T roundTrip(T value) throws IOException, ClassNotFoundException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(value);
+		}
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			return (T) in.readObject();
+		}
+	}
+
+	@Test
+	public void testDates() throws Exception {
+		VDate outside = VDate.valueOf("2018-01-01");
+		Assertions.assertThat(VDate.valueOf("2018-01-01")).isNotSameAs(outside).isEqualTo(outside);
+		VIntern.internDates(2000, 2030);
+		VDate date = VDate.valueOf("2018-1-1");
+		Assertions.assertThat(date).isEqualTo(outside);
+		Assertions.assertThat(VDate.valueOf(2018, 1, 1)).isSameAs(date);
+		Assertions.assertThat(VDate.valueOf(2017, 12, 31).plusDays(1)).isSameAs(date);
+		Assertions.assertThat(new VTimestamp(1_514_800_000_000L).toDate(VDateTime.UTC)).isSameAs(date);
+		Assertions.assertThat(new VDateTime("2018-01-01 10:00 UTC").getDate()).isSameAs(date);
+		Assertions.assertThat(roundTrip(outside)).isSameAs(date);
+		Assertions.assertThat(new VDate(2018, 1, 1)).isNotSameAs(date);
+		Assertions.assertThat(VDate.valueOf(2031, 1, 1)).isNotSameAs(VDate.valueOf(2031, 1, 1));
+		Assertions.assertThat(VDate.valueOf(LocalDate.MAX).plusDays(-1)).isEqualTo(new VDate(LocalDate.MAX.minusDays(1)));
+		Assertions.assertThatThrownBy(() -> VIntern.internDates(0, 2000)).isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	public void testTimes() throws Exception {
+		VIntern.internTimes(ChronoUnit.MINUTES);
+		VTimeOfDay time = VTimeOfDay.valueOf("10:15");
+		Assertions.assertThat(VTimeOfDay.valueOf(LocalTime.of(10, 15))).isSameAs(time);
+		Assertions.assertThat(new VDateTime("2018-01-01 10:15 UTC").getTime()).isSameAs(time);
+		Assertions.assertThat(roundTrip(new VTimeOfDay(LocalTime.of(10, 15)))).isSameAs(time);
+		Assertions.assertThat(VTimeOfDay.valueOf("10:15:01")).isNotSameAs(VTimeOfDay.valueOf("10:15:01"));
+		VIntern.internTimes(ChronoUnit.SECONDS);
+		Assertions.assertThat(VTimeOfDay.valueOf("10:15:01")).isSameAs(VTimeOfDay.valueOf("10:15:01"));
+		Assertions.assertThat(VTimeOfDay.valueOf("10:15:01.5")).isNotSameAs(VTimeOfDay.valueOf("10:15:01.5"));
+		Assertions.assertThatThrownBy(() -> VIntern.internTimes(ChronoUnit.HOURS))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	public void testBulkPaths() {
+		VIntern.internDates(2000, 2030);
+		VDate date = VDate.valueOf(2018, 1, 1);
+		long epochDay = date.toLocalDate().toEpochDay();
+		Assertions.assertThat(VDate.valueOf(2018, 1, 2).minusDays(1)).isSameAs(date);
+		Assertions.assertThat(VDateArrays.toDate((int) epochDay)).isSameAs(date);
+		Assertions.assertThat(new VDateTimeCursor(VDateTime.UTC).setDate(2018, 1, 1).toDate()).isSameAs(date);
+		VZoneConverter.Columns columns = new VZoneConverter(VDateTime.UTC)
+				.convert(new long[] { epochDay * 86_400_000L + 3_600_000L });
+		Assertions.assertThat(columns.getDate(0)).isSameAs(date);
+		Assertions.assertThat(Stream.of(new VTimestamp(epochDay * 86_400_000L))
+				.collect(VCollectors.groupingByDay(t -> t, VDateTime.UTC, Collectors.counting())).firstKey())
+				.isSameAs(date);
+	}
+
+	@Test
+	public void testConfigure() {
+		VIntern.configure("2018", "minutes");
+		Assertions.assertThat(VDate.valueOf(2018, 6, 1)).isSameAs(VDate.valueOf(2018, 6, 1));
+		Assertions.assertThat(VTimeOfDay.valueOf(LocalTime.of(10, 30)))
+				.isSameAs(VTimeOfDay.valueOf(LocalTime.of(10, 30)));
+		VIntern.clear();
+		// bad values are skipped rather than failing class initialization
+		for (String years : new String[] { "x", "2018-x", "2020-2010", "0-2000", "999999999-999999999" }) {
+			VIntern.configure(years, "hours");
+			Assertions.assertThat(VDate.valueOf(2018, 6, 1)).isNotSameAs(VDate.valueOf(2018, 6, 1));
+			Assertions.assertThat(VTimeOfDay.valueOf(LocalTime.of(10, 30)))
+					.isNotSameAs(VTimeOfDay.valueOf(LocalTime.of(10, 30)));
+		}
+		VIntern.configure(null, "no such unit");
+		Assertions.assertThat(VTimeOfDay.valueOf(LocalTime.of(10, 30)))
+				.isNotSameAs(VTimeOfDay.valueOf(LocalTime.of(10, 30)));
+	}
+
+}
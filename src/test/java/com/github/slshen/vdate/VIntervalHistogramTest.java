@@ -0,0 +1,104 @@
+package com.github.slshen.vdate;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.assertj.core.api.Assertions;
+import org.assertj.core.data.Percentage;
+import org.junit.Test;
+
+public class VIntervalHistogramTest {
+
+	@Test
+	public void testBucketIndex() {
+		for (int bits = 2; bits < 12; bits++) {
+			int last = -1;
+			for (long v = 0; v < 100_000; v++) {
+				int index = VIntervalHistogram.indexOf(bits, v);
+				Assertions.assertThat(index).isBetween(last, last + 1);
+				Assertions.assertThat(VIntervalHistogram.lowestValueAt(bits, index)).isLessThanOrEqualTo(v);
+				Assertions.assertThat(VIntervalHistogram.highestValueAt(bits, index)).isGreaterThanOrEqualTo(v);
+				last = index;
+			}
+		}
+	}
+
+	@Test
+	public void testPercentiles() {
+		VIntervalHistogram h = new VIntervalHistogram();
+		for (int i = 1; i <= 1000; i++) {
+			h.record(VInterval.of(i, TimeUnit.MILLISECONDS));
+		}
+		VIntervalHistogram.Snapshot s = h.snapshot();
+		Assertions.assertThat(s.getTotalCount()).isEqualTo(1000);
+		Assertions.assertThat(s.getNanosAtPercentile(50)).isCloseTo(TimeUnit.MILLISECONDS.toNanos(500),
+				Percentage.withPercentage(1));
+		Assertions.assertThat(s.getNanosAtPercentile(99)).isCloseTo(TimeUnit.MILLISECONDS.toNanos(990),
+				Percentage.withPercentage(1));
+		Assertions.assertThat(s.getMeanNanos()).isCloseTo(TimeUnit.MICROSECONDS.toNanos(500_500),
+				Percentage.withPercentage(1));
+		Assertions.assertThat(s.getMax().getDuration().toNanos()).isCloseTo(TimeUnit.SECONDS.toNanos(1),
+				Percentage.withPercentage(1));
+	}
+
+	@Test
+	public void testRecordPairs() {
+		VIntervalHistogram h = new VIntervalHistogram(VInterval.of(1, TimeUnit.MINUTES), 3);
+		h.record(new VTimestamp(1000), new VTimestamp(1250));
+		h.record(new VTimeOfDay("10:00"), new VTimeOfDay("10:00:00.25"));
+		VIntervalHistogram.Snapshot s = h.snapshot();
+		Assertions.assertThat(s.getTotalCount()).isEqualTo(2);
+		Assertions.assertThat(s.getMin().getDuration().toMillis()).isEqualTo(249);
+		Assertions.assertThat(s.getValueAtPercentile(100).getDuration().toMillis()).isEqualTo(250);
+		h.record(VInterval.of(2, TimeUnit.HOURS));
+		Assertions.assertThat(h.snapshot().getMax()).isEqualTo(new VInterval(Duration.ofMinutes(1)));
+	}
+
+	@Test
+	public void testMerge() throws InterruptedException {
+		VIntervalHistogram h1 = new VIntervalHistogram();
+		VIntervalHistogram h2 = new VIntervalHistogram();
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			threads[t] = new Thread(() -> {
+				for (int i = 0; i < 10_000; i++) {
+					h1.record(i);
+					h2.record(i + 10_000);
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread t : threads) {
+			t.join();
+		}
+		VIntervalHistogram.Snapshot merged = h1.snapshot().merge(h2.snapshot());
+		Assertions.assertThat(merged.getTotalCount()).isEqualTo(80_000);
+		Assertions.assertThat(merged.getNanosAtPercentile(50)).isCloseTo(10_000, Percentage.withPercentage(1));
+		Assertions.assertThat(h1.snapshotAndReset().getTotalCount()).isEqualTo(40_000);
+		Assertions.assertThat(h1.snapshot().getTotalCount()).isEqualTo(0);
+	}
+
+	@Test
+	public void testMemoryBounded() {
+		Assertions.assertThat(VIntervalHistogram.stripeCount(64, 100)).isEqualTo(64);
+		Assertions.assertThat(VIntervalHistogram.stripeCount(1, 100)).isEqualTo(1);
+		for (int digits = 1; digits <= 5; digits++) {
+			int bits = 64 - Long.numberOfLeadingZeros(2 * (long) Math.pow(10, digits) - 1);
+			int bucketCount = VIntervalHistogram.indexOf(bits, TimeUnit.HOURS.toNanos(1)) + 1;
+			int stripes = VIntervalHistogram.stripeCount(64, bucketCount);
+			Assertions.assertThat(stripes).isPositive();
+			Assertions.assertThat((long) stripes * bucketCount)
+					.isLessThanOrEqualTo(Math.max(bucketCount, VIntervalHistogram.MAX_STRIPED_COUNTERS));
+		}
+		VIntervalHistogram h = new VIntervalHistogram(VInterval.of(1, TimeUnit.HOURS), 5);
+		Assertions.assertThat(h.getCounterCount()).isLessThan(4_000_000);
+		h.record(VInterval.of(1, TimeUnit.SECONDS));
+		Assertions.assertThat(h.snapshot().getTotalCount()).isEqualTo(1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testPeriodRejected() {
+		new VIntervalHistogram().record(VInterval.of(1, TimeUnit.DAYS));
+	}
+
+}
@@ -0,0 +1,91 @@
+package com.github.slshen.vdate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DateTimeException;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Assume;
+import org.junit.Test;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+public class VMetricsTest {
+
+	@Test
+	public void testDisabled() throws Exception {
+		Assume.assumeFalse(VMetrics.ENABLED);
+		Path file = Files.createTempFile("vdate", ".jfr");
+		try (Recording recording = new Recording()) {
+			recording.enable(VEvents.Parse.class).withoutThreshold();
+			recording.enable(VEvents.Conversion.class).withoutThreshold();
+			recording.start();
+			new VDateTime("2018-1-1 10:00 UTC").plusInterval(VInterval.of(2, TimeUnit.DAYS));
+			Assertions.assertThatThrownBy(() -> new VTimeOfDay("noon")).isInstanceOf(DateTimeException.class);
+			new VTimestamp(0).toDate(ZoneId.of("UTC"));
+			recording.stop();
+			recording.dump(file);
+			Assertions.assertThat(RecordingFile.readAllEvents(file))
+					.noneMatch(e -> e.getEventType().getName().startsWith(VEvents.class.getPackageName() + "."));
+		} finally {
+			Files.delete(file);
+		}
+		Assertions.assertThat(VMetrics.snapshot().values()).containsOnly(0L);
+	}
+
+	@Test
+	public void testCounters() {
+		Assume.assumeTrue(VMetrics.ENABLED);
+		long parses = VMetrics.get(VMetrics.Counter.DATE_TIME_PARSE);
+		long failures = VMetrics.get(VMetrics.Counter.ZONE_LOOKUP_FAILURE);
+		new VDateTime("2018-1-1 10:00 UTC");
+		Assertions.assertThatThrownBy(() -> new VDateTime("2018-1-1 No/Such_Zone"))
+				.isInstanceOf(DateTimeException.class);
+		Assertions.assertThat(VMetrics.get(VMetrics.Counter.DATE_TIME_PARSE) - parses).isGreaterThanOrEqualTo(2);
+		Assertions.assertThat(VMetrics.get(VMetrics.Counter.ZONE_LOOKUP_FAILURE) - failures)
+				.isGreaterThanOrEqualTo(1);
+		Assertions.assertThat(VMetrics.snapshot()).containsKeys("date.parse", "date.time.parse.failure",
+				"dst.crossing");
+	}
+
+	@Test
+	public void testDstCrossing() {
+		Assume.assumeTrue(VMetrics.ENABLED);
+		long crossings = VMetrics.get(VMetrics.Counter.DST_CROSSING);
+		VDateTime d = new VDateTime("2018-03-10 America/New_York");
+		d.plusInterval(VInterval.of(1, TimeUnit.HOURS));
+		Assertions.assertThat(VMetrics.get(VMetrics.Counter.DST_CROSSING)).isEqualTo(crossings);
+		d.plusInterval(VInterval.of(2, TimeUnit.DAYS));
+		Assertions.assertThat(VMetrics.get(VMetrics.Counter.DST_CROSSING)).isGreaterThan(crossings);
+	}
+
+	@Test
+	public void testEvents() throws Exception {
+		Assume.assumeTrue(VMetrics.ENABLED);
+		Path file = Files.createTempFile("vdate", ".jfr");
+		try (Recording recording = new Recording()) {
+			recording.enable(VEvents.Parse.class).withoutThreshold();
+			recording.enable(VEvents.Conversion.class).withoutThreshold();
+			recording.start();
+			new VDate("2018-01-01");
+			Assertions.assertThatThrownBy(() -> new VTimeOfDay("noon")).isInstanceOf(DateTimeException.class);
+			new VTimestamp(0).toDateTime(ZoneId.of("UTC"));
+			recording.stop();
+			recording.dump(file);
+			List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+			List<String> types = events.stream().filter(e -> e.getEventType().getName().endsWith("Parse"))
+					.map(e -> e.getString("type") + " " + e.getBoolean("success")).collect(Collectors.toList());
+			Assertions.assertThat(types).contains("date.parse true", "time.parse false");
+			Assertions.assertThat(events).anyMatch(e -> e.getEventType().getName().endsWith("Conversion"));
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+}
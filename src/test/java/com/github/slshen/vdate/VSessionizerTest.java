@@ -0,0 +1,186 @@
+package com.github.slshen.vdate;
+
+import java.time.DateTimeException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+public class VSessionizerTest {
+
+	private static final VInterval GAP = VInterval.of(30, TimeUnit.MINUTES);
+
+	private static VTimestamp at(String time) {
+		return new VDateTime("2018-01-01 " + time + " UTC").toTimestamp();
+	}
+
+	private static String describe(VSessionizer.Event<String> e) {
+		return e.getType() + " " + e.getKey() + " " + e.getStart().toDateTime(VDateTime.UTC).getTime() + "-"
+				+ e.getEnd().toDateTime(VDateTime.UTC).getTime() + " " + e.getCount();
+	}
+
+	@Test
+	public void testSessionsAndGaps() {
+		List<String> out = new ArrayList<>();
+		VSessionizer<String> s = new VSessionizer<>(GAP, e -> out.add(describe(e)));
+		for (String time : Arrays.asList("10:00", "10:20", "10:45", "12:00", "12:10", "14:00")) {
+			s.accept("a", at(time));
+		}
+		s.accept("b", at("10:05"));
+		s.flush();
+		Assertions.assertThat(out).containsExactly("SESSION a 10:00-10:45 3", "GAP a 10:45-12:00 0",
+				"SESSION a 12:00-12:10 2", "LATE b 10:05-10:05 1", "GAP a 12:10-14:00 0",
+				"SESSION a 14:00-14:00 1");
+	}
+
+	@Test
+	public void testLateness() {
+		List<String> out = new ArrayList<>();
+		VSessionizer<String> s = new VSessionizer<>(GAP, VInterval.of(1, TimeUnit.HOURS),
+				e -> out.add(describe(e)));
+		s.accept("a", at("10:00"));
+		s.accept("a", at("10:50"));
+		// bridges the two
+		s.accept("a", at("10:25"));
+		s.accept("a", at("11:15"));
+		// older than the watermark
+		s.accept("a", at("10:10"));
+		s.advanceWatermark(at("13:00"));
+		Assertions.assertThat(out).containsExactly("LATE a 10:10-10:10 1", "SESSION a 10:00-11:15 4");
+	}
+
+	@Test
+	public void testThreeSessions() {
+		VInterval lateness = VInterval.of(3, TimeUnit.HOURS);
+		// the third session is between the other two, the pending one is closed
+		List<String> out = new ArrayList<>();
+		VSessionizer<String> s = new VSessionizer<>(GAP, lateness, e -> out.add(describe(e)));
+		for (String time : Arrays.asList("12:00", "10:00", "11:00", "10:10", "11:10")) {
+			s.accept("a", at(time));
+		}
+		s.flush();
+		Assertions.assertThat(out).containsExactly("SESSION a 10:00-10:00 1", "LATE a 10:10-10:10 1",
+				"GAP a 10:00-11:00 0", "SESSION a 11:00-11:10 2", "GAP a 11:10-12:00 0", "SESSION a 12:00-12:00 1");
+		// the third session is the oldest, it is closed
+		out.clear();
+		s = new VSessionizer<>(GAP, lateness, e -> out.add(describe(e)));
+		for (String time : Arrays.asList("12:00", "11:00", "10:00")) {
+			s.accept("a", at(time));
+		}
+		s.flush();
+		Assertions.assertThat(out).containsExactly("SESSION a 10:00-10:00 1", "GAP a 10:00-11:00 0",
+				"SESSION a 11:00-11:00 1", "GAP a 11:00-12:00 0", "SESSION a 12:00-12:00 1");
+	}
+
+	@Test
+	public void testIdleKeysForgotten() {
+		List<String> out = new ArrayList<>();
+		VSessionizer<Integer> s = new VSessionizer<>(GAP, VInterval.of(5, TimeUnit.MINUTES),
+				e -> out.add(e.getType() + " " + e.getKey()));
+		// a key every 100ms from 10:00 to 10:16:40
+		VTimestamp start = at("10:00");
+		for (int i = 0; i < 10_000; i++) {
+			s.accept(i, start.plusInterval(VInterval.of(100L * i, TimeUnit.MILLISECONDS)));
+		}
+		Assertions.assertThat(s.getKeyCount()).isEqualTo(10_000);
+		// closes the sessions up to 10:10 and forgets all but the last of those keys
+		s.advanceWatermark(at("10:40"));
+		Assertions.assertThat(out).hasSize(6001).startsWith("SESSION 0").endsWith("SESSION 6000");
+		Assertions.assertThat(s.getKeyCount()).isEqualTo(4000);
+		s.accept(6000, at("10:40"));
+		Assertions.assertThat(out).hasSize(6002).endsWith("LATE 6000");
+		s.advanceWatermark(at("14:00"));
+		Assertions.assertThat(out).hasSize(10_001);
+		Assertions.assertThat(s.getKeyCount()).isZero();
+		// a forgotten key's late events are caught by the watermark
+		s.accept(0, at("13:59"));
+		Assertions.assertThat(out).hasSize(10_002).endsWith("LATE 0");
+		s.accept(0, at("14:00"));
+		Assertions.assertThat(s.getKeyCount()).isEqualTo(1);
+		s.flush();
+		Assertions.assertThat(out).hasSize(10_003).endsWith("SESSION 0");
+		Assertions.assertThat(s.getKeyCount()).isZero();
+	}
+
+	@Test
+	public void testStream() {
+		Stream<VTimestamp> events = Stream.of("9:00", "9:10", "11:00", "11:01", "11:02").map(VSessionizerTest::at);
+		List<String> out = VSessionizer.sessions(events, t -> "k", t -> t, GAP, VInterval.ZERO)
+				.map(VSessionizerTest::describe).collect(Collectors.toList());
+		Assertions.assertThat(out).containsExactly("SESSION k 09:00-09:10 2", "GAP k 09:10-11:00 0",
+				"SESSION k 11:00-11:02 3");
+	}
+
+	@Test
+	public void testProcessor() throws Exception {
+		List<String> out = new ArrayList<>();
+		Flow.Processor<VTimestamp, VSessionizer.Event<String>> processor = VSessionizer.processor(t -> "k", t -> t,
+				GAP, VInterval.ZERO);
+		@SuppressWarnings("unchecked")
+		CompletableFuture<Void> done = ((SubmissionPublisher<VSessionizer.Event<String>>) processor)
+				.consume(e -> out.add(describe(e)));
+		try (SubmissionPublisher<VTimestamp> publisher = new SubmissionPublisher<>()) {
+			publisher.subscribe(processor);
+			for (int i = 0; i < 300; i++) {
+				publisher.submit(at("10:00").plusInterval(VInterval.of(i * 2, TimeUnit.MINUTES)));
+			}
+			publisher.submit(at("10:00").plusInterval(VInterval.of(1, TimeUnit.DAYS)));
+		}
+		done.get(10, TimeUnit.SECONDS);
+		Assertions.assertThat(out).containsExactly("SESSION k 10:00-19:58 300", "GAP k 19:58-10:00 0",
+				"SESSION k 10:00-10:00 1");
+	}
+
+	@Test
+	public void testProcessorIdleKey() throws Exception {
+		List<String> out = new CopyOnWriteArrayList<>();
+		CompletableFuture<Void> closed = new CompletableFuture<>();
+		Flow.Processor<String[], VSessionizer.Event<String>> processor = VSessionizer.processor(e -> e[0],
+				e -> at(e[1]), GAP, VInterval.ZERO);
+		@SuppressWarnings("unchecked")
+		CompletableFuture<Void> done = ((SubmissionPublisher<VSessionizer.Event<String>>) processor).consume(e -> {
+			out.add(describe(e));
+			if (e.getKey().equals("a")) {
+				closed.complete(null);
+			}
+		});
+		try (SubmissionPublisher<String[]> publisher = new SubmissionPublisher<>()) {
+			publisher.subscribe(processor);
+			publisher.submit(new String[] { "a", "10:00" });
+			for (int i = 0; i < 100; i++) {
+				publisher.submit(new String[] { "b", String.format("%02d:%02d", 10 + i / 60, i % 60) });
+			}
+			// a's session is closed by b's events, before the input completes
+			closed.get(10, TimeUnit.SECONDS);
+		}
+		done.get(10, TimeUnit.SECONDS);
+		Assertions.assertThat(out).containsExactly("SESSION a 10:00-10:00 1", "SESSION b 10:00-11:39 100");
+	}
+
+	@Test
+	public void testProcessorError() throws Exception {
+		Flow.Processor<String, VSessionizer.Event<String>> processor = VSessionizer.processor(t -> "k",
+				VSessionizerTest::at, GAP, VInterval.ZERO);
+		@SuppressWarnings("unchecked")
+		CompletableFuture<Void> done = ((SubmissionPublisher<VSessionizer.Event<String>>) processor).consume(e -> {
+		});
+		try (SubmissionPublisher<String> publisher = new SubmissionPublisher<>()) {
+			publisher.subscribe(processor);
+			publisher.submit("10:00");
+			publisher.submit("not a time");
+		}
+		Assertions.assertThatThrownBy(() -> done.get(10, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class)
+				.hasCauseInstanceOf(DateTimeException.class);
+	}
+
+}
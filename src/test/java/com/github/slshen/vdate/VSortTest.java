@@ -0,0 +1,108 @@
+package com.github.slshen.vdate;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+public class VSortTest {
+
+	@Test
+	public void testTimestamps() {
+		Random random = new Random(1);
+		List<VTimestamp> list = new ArrayList<>();
+		for (int i = 0; i < 200_000; i++) {
+			// lots of duplicates so stability matters
+			list.add(new VTimestamp(Instant.ofEpochSecond(1_500_000_000L + random.nextInt(100_000),
+					random.nextInt(4) * 250_000_000)));
+		}
+		List<VTimestamp> expected = new ArrayList<>(list);
+		Collections.sort(expected);
+		VSort.sortTimestamps(list);
+		assertSameElements(list, expected);
+	}
+
+	@Test
+	public void testWideTimestamps() {
+		Random random = new Random(2);
+		VTimestamp[] a = new VTimestamp[10_000];
+		for (int i = 0; i < a.length; i++) {
+			a[i] = new VTimestamp(Instant.ofEpochSecond(random.nextLong() % Instant.MAX.getEpochSecond(),
+					random.nextInt(1_000_000_000)));
+		}
+		a[0] = new VTimestamp(Instant.MIN);
+		a[1] = new VTimestamp(Instant.MAX);
+		VTimestamp[] expected = a.clone();
+		Arrays.sort(expected);
+		VSort.sort(a);
+		Assertions.assertThat(a).containsExactly(expected);
+	}
+
+	@Test
+	public void testDateTimes() {
+		Random random = new Random(3);
+		ZoneId[] zones = { ZoneId.of("UTC"), ZoneId.of("America/New_York"), ZoneId.of("Asia/Tokyo") };
+		List<VDateTime> list = new ArrayList<>();
+		for (int i = 0; i < 5_000; i++) {
+			list.add(new VTimestamp(random.nextInt(1_000_000) * 1000L).toDateTime(zones[random.nextInt(3)]));
+		}
+		List<VDateTime> expected = new ArrayList<>(list);
+		expected.sort(Comparator.comparing(VDateTime::toTimestamp));
+		VSort.sortDateTimes(list);
+		assertSameElements(list, expected);
+	}
+
+	@Test
+	public void testDates() {
+		Random random = new Random(4);
+		List<VDate> list = new ArrayList<>();
+		for (int i = 0; i < 100_000; i++) {
+			list.add(new VDate(LocalDate.ofEpochDay(random.nextInt(2_000_000) - 1_000_000)));
+		}
+		List<VDate> expected = new ArrayList<>(list);
+		Collections.sort(expected);
+		VSort.sortDates(list);
+		assertSameElements(list, expected);
+	}
+
+	@Test
+	public void testPermutation() {
+		long[] keys = { 5, -1, 3, Long.MIN_VALUE, 3, Long.MAX_VALUE, 0 };
+		Assertions.assertThat(VSort.permutation(keys, null)).containsExactly(3, 1, 6, 2, 4, 0, 5);
+		Assertions.assertThat(keys[0]).isEqualTo(5);
+	}
+
+	@Test
+	public void testMerge() {
+		Assertions.assertThat(VSort.merge(new long[] { 1, 4, 9 }, new long[0], new long[] { 2, 4, 10 }))
+				.containsExactly(1, 2, 4, 4, 9, 10);
+		VDate a = new VDate("2018-01-01");
+		VDate b = new VDate("2018-01-01");
+		List<Iterator<VDate>> runs = Arrays.asList(
+				Arrays.asList(new VDate("2017-12-31"), a, new VDate("2018-03-01")).iterator(),
+				Arrays.asList(b, new VDate("2018-02-01")).iterator(), Collections.emptyIterator());
+		List<VDate> merged = new ArrayList<>();
+		VSort.merge(runs).forEachRemaining(merged::add);
+		Assertions.assertThat(merged).extracting(VDate::toString).containsExactly("2017-12-31", "2018-01-01",
+				"2018-01-01", "2018-02-01", "2018-03-01");
+		Assertions.assertThat(merged.get(1)).isSameAs(a);
+		Assertions.assertThat(merged.get(2)).isSameAs(b);
+	}
+
+	private static <T> void assertSameElements(List<T> actual, List<T> expected) {
+		Assertions.assertThat(actual).hasSameSizeAs(expected);
+		for (int i = 0; i < actual.size(); i++) {
+			Assertions.assertThat(actual.get(i)).isSameAs(expected.get(i));
+		}
+	}
+
+}
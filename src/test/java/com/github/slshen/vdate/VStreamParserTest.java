@@ -0,0 +1,156 @@
+package com.github.slshen.vdate;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+public class VStreamParserTest {
+
+	// includes the quirks of the patterns, e.g. "Am" in "America" is taken for
+	// AM and 12 PM is an error
+	private static final List<String> RECORDS = Arrays.asList("2018-01-01", " 2018-1-2 ", "2018-01-02 10:30",
+			"2018-01-02 3:04:05 UTC", "2018-01-02 3:04:05.1 PM Europe/Paris", "2018-01-02 3:04:05.1234567891234 pm",
+			"2018-01-02 11:00am UTC", "2018-01-02 12:00 PM", "2018-01-02 10:00 America/New_York",
+			"2018-01-02T10:00:00Z", "2018-01-023 UTC", "2018-02-30", "12345-01-01", "10:15 UTC", "2018-01-02 1:2",
+			"2018-01-02 10:30:5 UTC", "2018-01-02 10:30:05. UTC", "2018-01-02\t10:30\tGMT+2 trailing", "UTC",
+			"2018-01-02 EST", "2018-01-02 24:00", "2018-1-02-3 UTC");
+
+	private static String expected(String record) {
+		try {
+			return new VDateTime(record).toString();
+		} catch (RuntimeException e) {
+			return e.getClass().getName();
+		}
+	}
+
+	@Test
+	public void testSameAsParse() {
+		List<String> expected = new ArrayList<>();
+		for (String record : RECORDS) {
+			expected.add(expected(record));
+		}
+		String text = String.join("\n", RECORDS);
+		// every split of the input into two chunks
+		for (int split = 0; split <= text.length(); split++) {
+			List<String> actual = new ArrayList<>();
+			VStreamParser<VDateTime> parser = new VStreamParser<>(VStreamParser.Format.DATE_TIME,
+					v -> actual.add(v.toString()), (record, e) -> actual.add(e.getClass().getName()));
+			parser.accept(text.substring(0, split));
+			parser.accept(text.substring(split));
+			parser.finish();
+			Assertions.assertThat(actual).as("split at %d", split).isEqualTo(expected);
+		}
+	}
+
+	@Test
+	public void testTimestamps() {
+		List<String> records = Arrays.asList("2018-01-01T10:00:00Z", "2018-01-01T10:00Z", "2018-01-01t10:00:00z",
+				"2018-01-01T10:00:00.5Z", "2018-01-01T10:00:00.123456789Z", "2018-01-01T10:00:00.1234567891Z",
+				"2018-01-01T10:00:00.Z", "2016-02-29T23:59:59Z", "2017-02-29T10:00:00Z", "2018-01-01T24:00:00Z",
+				"2018-13-01T10:00:00Z", "2018-01-01T10:00:60Z", "2018-01-01T10:00:00+01:00", "+12018-01-01T10:00:00Z",
+				"0000-01-01T00:00:00Z", "1969-12-31T23:59:59.999Z", " 2018-01-01T10:00:00Z", "2018-01-01 10:00:00Z",
+				"2018-01-01T10:00:5Z", "2018-1-01T10:00:00Z");
+		List<String> expected = new ArrayList<>();
+		for (String record : records) {
+			try {
+				expected.add(new VTimestamp(record).toString());
+			} catch (RuntimeException e) {
+				expected.add(e.getClass().getName());
+			}
+		}
+		String text = String.join("\r\n", records);
+		for (int split = 0; split <= text.length(); split += 7) {
+			List<String> actual = new ArrayList<>();
+			VStreamParser<VTimestamp> parser = new VStreamParser<>(VStreamParser.Format.TIMESTAMP,
+					v -> actual.add(v.toString()), (record, e) -> actual.add(e.getClass().getName()));
+			parser.accept(text.substring(0, split));
+			parser.accept(text.substring(split));
+			parser.finish();
+			Assertions.assertThat(actual).as("split at %d", split).isEqualTo(expected);
+		}
+	}
+
+	@Test
+	public void testBytes() {
+		List<String> actual = new ArrayList<>();
+		List<String> errors = new ArrayList<>();
+		VStreamParser<VDateTime> parser = new VStreamParser<>(VStreamParser.Format.DATE_TIME,
+				v -> actual.add(v.toString()), (record, e) -> errors.add(record), 32);
+		byte[] bytes = "2018-01-02 10:30 UTC\r\n\n   \nnot a date\n2018-01-02 10:30:00.000000000000000000000000 UTC\n2018-01-03 UTC"
+				.getBytes(StandardCharsets.ISO_8859_1);
+		for (int i = 0; i < bytes.length; i += 3) {
+			ByteBuffer chunk = i % 2 == 0 ? ByteBuffer.wrap(bytes, i, Math.min(3, bytes.length - i)).slice()
+					: ByteBuffer.allocateDirect(3).put(bytes, i, Math.min(3, bytes.length - i)).flip();
+			parser.accept(chunk);
+			Assertions.assertThat(chunk.hasRemaining()).isFalse();
+		}
+		parser.finish();
+		Assertions.assertThat(actual).containsExactly("2018-01-02T10:30Z[UTC]", "2018-01-03T00:00Z[UTC]");
+		Assertions.assertThat(errors).containsExactly("not a date", "2018-01-02 10:30:00.000000000000");
+	}
+
+	@Test
+	public void testProcessor() throws Exception {
+		Flow.Processor<CharSequence, List<VDateTime>> processor = VStreamParser.processor(
+				VStreamParser.Format.DATE_TIME, (record, e) -> Assertions.fail("bad record " + record));
+		List<VDateTime> values = new CopyOnWriteArrayList<>();
+		List<Integer> batches = new CopyOnWriteArrayList<>();
+		CompletableFuture<Void> done = new CompletableFuture<>();
+		processor.subscribe(new Flow.Subscriber<List<VDateTime>>() {
+			private Flow.Subscription subscription;
+
+			@Override
+			public void onSubscribe(Flow.Subscription subscription) {
+				this.subscription = subscription;
+				subscription.request(1);
+			}
+
+			@Override
+			public void onNext(List<VDateTime> item) {
+				values.addAll(item);
+				batches.add(item.size());
+				subscription.request(1);
+			}
+
+			@Override
+			public void onError(Throwable throwable) {
+				done.completeExceptionally(throwable);
+			}
+
+			@Override
+			public void onComplete() {
+				done.complete(null);
+			}
+		});
+		VTimestamp start = new VTimestamp("2018-01-01T00:00:00Z");
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 1000; i++) {
+			text.append(String.format("2018-01-01 %02d:%02d UTC\n", i / 60, i % 60));
+		}
+		try (SubmissionPublisher<CharSequence> publisher = new SubmissionPublisher<>()) {
+			publisher.subscribe(processor);
+			for (int i = 0; i < text.length(); i += 100) {
+				publisher.submit(text.subSequence(i, Math.min(i + 100, text.length())));
+			}
+		}
+		done.get(10, TimeUnit.SECONDS);
+		Assertions.assertThat(values).hasSize(1000);
+		for (int i = 0; i < 1000; i++) {
+			Assertions.assertThat(values.get(i).toTimestamp())
+					.isEqualTo(start.plusInterval(VInterval.of(i, TimeUnit.MINUTES)));
+		}
+		// a batch per chunk rather than per value
+		Assertions.assertThat(batches.size()).isLessThan(1000);
+	}
+
+}
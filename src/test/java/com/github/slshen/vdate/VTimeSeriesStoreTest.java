@@ -0,0 +1,135 @@
+package com.github.slshen.vdate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class VTimeSeriesStoreTest {
+
+	private static final ZoneId NEW_YORK = ZoneId.of("America/New_York");
+	private static final VTimestamp START = new VDateTime("2018-01-01 America/New_York").toTimestamp();
+	private static final VInterval STEP = VInterval.of(10, TimeUnit.SECONDS);
+
+	private Path directory;
+
+	@Before
+	public void createDirectory() throws IOException {
+		directory = Files.createTempDirectory("vdate");
+	}
+
+	@After
+	public void deleteDirectory() throws IOException {
+		try (Stream<Path> files = Files.walk(directory)) {
+			files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+		}
+	}
+
+	@Test
+	public void testAppendAndQuery() throws IOException {
+		try (VTimeSeriesStore store = new VTimeSeriesStore(directory, NEW_YORK)) {
+			// 3 days of samples every 10 seconds
+			for (int i = 0; i < 3 * 8640; i++) {
+				store.append(START.plusInterval(VInterval.of(10L * i, TimeUnit.SECONDS)), (long) i);
+			}
+			Assertions.assertThat(store.getDates()).extracting(VDate::toString).containsExactly("2018-01-01",
+					"2018-01-02", "2018-01-03");
+			List<Long> values = read(store, START.plusInterval(VInterval.of(23, TimeUnit.HOURS)),
+					START.plusInterval(VInterval.of(25, TimeUnit.HOURS)));
+			Assertions.assertThat(values).hasSize(720);
+			Assertions.assertThat(values.get(0)).isEqualTo(23 * 360);
+			Assertions.assertThat(values.get(719)).isEqualTo(25 * 360 - 1);
+			Assertions.assertThat(read(store, START.plusInterval(STEP), START.plusInterval(STEP))).isEmpty();
+		}
+	}
+
+	@Test
+	public void testReopenAndDrop() throws IOException {
+		try (VTimeSeriesStore store = new VTimeSeriesStore(directory, NEW_YORK)) {
+			for (int i = 0; i < 2 * 8640; i++) {
+				store.append(START.plusInterval(VInterval.of(10L * i, TimeUnit.SECONDS)), i / 2.0);
+			}
+		}
+		try (VTimeSeriesStore store = new VTimeSeriesStore(directory, NEW_YORK)) {
+			VTimeSeriesStore.Cursor cursor = store.cursor(START, START.plusInterval(VInterval.of(1, TimeUnit.DAYS)));
+			int n = 0;
+			while (cursor.next()) {
+				Assertions.assertThat(cursor.getDouble()).isEqualTo(n / 2.0);
+				Assertions.assertThat(cursor.getTimestamp())
+						.isEqualTo(START.plusInterval(VInterval.of(10L * n, TimeUnit.SECONDS)));
+				n++;
+			}
+			Assertions.assertThat(n).isEqualTo(8640);
+			Assertions.assertThatThrownBy(() -> store.append(START, 1L)).isInstanceOf(IllegalArgumentException.class);
+			Assertions.assertThat(store.dropBefore(new VDate("2018-01-02"))).isEqualTo(1);
+			Assertions.assertThat(store.getDates()).extracting(VDate::toString).containsExactly("2018-01-02");
+		}
+		Assertions.assertThatThrownBy(() -> new VTimeSeriesStore(directory, ZoneId.of("UTC")))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	public void testTruncateOnClose() throws IOException {
+		try (VTimeSeriesStore store = new VTimeSeriesStore(directory, NEW_YORK)) {
+			for (int i = 0; i < 1000; i++) {
+				store.append(START.plusInterval(VInterval.of(10L * i, TimeUnit.SECONDS)), (long) i);
+			}
+		}
+		// header plus 16 bytes a record, and 8 bytes an index block
+		Assertions.assertThat(Files.size(directory.resolve("2018-01-01.seg"))).isEqualTo(64 + 1000 * 16);
+		Assertions.assertThat(Files.size(directory.resolve("2018-01-01.idx"))).isEqualTo(4 * 8);
+		try (VTimeSeriesStore store = new VTimeSeriesStore(directory, NEW_YORK)) {
+			for (int i = 1000; i < 2000; i++) {
+				store.append(START.plusInterval(VInterval.of(10L * i, TimeUnit.SECONDS)), (long) i);
+			}
+			List<Long> values = read(store, START, START.plusInterval(VInterval.of(1, TimeUnit.DAYS)));
+			Assertions.assertThat(values).hasSize(2000);
+			for (int i = 0; i < 2000; i++) {
+				Assertions.assertThat(values.get(i)).isEqualTo(i);
+			}
+		}
+	}
+
+	@Test
+	public void testBadSegments() throws IOException {
+		try (VTimeSeriesStore store = new VTimeSeriesStore(directory, NEW_YORK)) {
+			store.append(START, 1L);
+		}
+		Files.write(directory.resolve("2018-01-02.seg"), new byte[10]);
+		Files.write(directory.resolve("2018-01-03.seg"), new byte[100]);
+		try (VTimeSeriesStore store = new VTimeSeriesStore(directory, NEW_YORK)) {
+			VTimestamp next = START.plusInterval(VInterval.of(1, TimeUnit.DAYS));
+			Assertions.assertThatThrownBy(() -> store.append(next, 1L)).isInstanceOf(IOException.class)
+					.hasMessageContaining("too short");
+			Assertions.assertThat(Files.size(directory.resolve("2018-01-02.seg"))).isEqualTo(10);
+			VTimestamp last = START.plusInterval(VInterval.of(2, TimeUnit.DAYS));
+			Assertions.assertThatThrownBy(() -> store.append(last, 1L)).isInstanceOf(IOException.class)
+					.hasMessageContaining("not a segment file");
+			// no segment is opened to drop it
+			Assertions.assertThat(store.dropBefore(new VDate("2018-01-04"))).isEqualTo(3);
+		}
+		try (Stream<Path> files = Files.list(directory)) {
+			Assertions.assertThat(files.map(p -> p.getFileName().toString())).containsExactly("zone");
+		}
+	}
+
+	private static List<Long> read(VTimeSeriesStore store, VTimestamp from, VTimestamp to) throws IOException {
+		List<Long> values = new ArrayList<>();
+		VTimeSeriesStore.Cursor cursor = store.cursor(from, to);
+		while (cursor.next()) {
+			values.add(cursor.getLong());
+		}
+		return values;
+	}
+
+}
@@ -0,0 +1,125 @@
+package com.github.slshen.vdate;
+
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+public class VTimestampMapTest {
+
+	private static final VTimestamp START = new VTimestamp("2018-01-01T00:00:00Z");
+
+	private static VTimestamp minutes(long n) {
+		return START.plusInterval(VInterval.of(n, TimeUnit.MINUTES));
+	}
+
+	@Test
+	public void testNavigation() {
+		VTimestampMap<String> map = new VTimestampMap<>(VInterval.of(1, TimeUnit.HOURS));
+		// out of order, across buckets
+		for (long n : new long[] { 90, 10, 200, 30, 20, 61 }) {
+			Assertions.assertThat(map.put(minutes(n), "m" + n)).isNull();
+		}
+		Assertions.assertThat(map.put(minutes(30), "thirty")).isEqualTo("m30");
+		Assertions.assertThat(map.size()).isEqualTo(6);
+		Assertions.assertThat(map.getBucketCount()).isEqualTo(3);
+		Assertions.assertThat(map.get(minutes(30))).isEqualTo("thirty");
+		Assertions.assertThat(map.get(minutes(31))).isNull();
+		Assertions.assertThat(map.floorEntry(minutes(60)).getValue()).isEqualTo("thirty");
+		Assertions.assertThat(map.floorEntry(minutes(61)).getKey()).isEqualTo(minutes(61));
+		Assertions.assertThat(map.floorEntry(minutes(5))).isNull();
+		Assertions.assertThat(map.ceilingEntry(minutes(91)).getValue()).isEqualTo("m200");
+		Assertions.assertThat(map.ceilingEntry(minutes(201))).isNull();
+		Assertions.assertThat(map.firstEntry().getValue()).isEqualTo("m10");
+		Assertions.assertThat(map.lastEntry().getValue()).isEqualTo("m200");
+
+		List<String> values = new ArrayList<>();
+		Iterator<Map.Entry<VTimestamp, String>> it = map.iterator(minutes(20), minutes(200));
+		it.forEachRemaining(e -> values.add(e.getValue()));
+		Assertions.assertThat(values).containsExactly("m20", "thirty", "m61", "m90");
+		values.clear();
+		map.forEach(minutes(0), minutes(61), (nanos, v) -> values.add(v));
+		Assertions.assertThat(values).containsExactly("m10", "m20", "thirty");
+
+		Assertions.assertThat(map.remove(minutes(20))).isEqualTo("m20");
+		Assertions.assertThat(map.remove(minutes(20))).isNull();
+		Assertions.assertThat(map.size()).isEqualTo(5);
+		// the bucket is dropped with its last entry
+		Assertions.assertThat(map.remove(minutes(61))).isEqualTo("m61");
+		Assertions.assertThat(map.getBucketCount()).isEqualTo(3);
+		Assertions.assertThat(map.remove(minutes(200))).isEqualTo("m200");
+		Assertions.assertThat(map.getBucketCount()).isEqualTo(2);
+		Assertions.assertThat(map.lastEntry().getValue()).isEqualTo("m90");
+	}
+
+	@Test
+	public void testEvict() {
+		VTimestampMap<Integer> map = new VTimestampMap<>(VInterval.of(10, TimeUnit.MINUTES));
+		for (int n = 0; n < 100; n++) {
+			map.put(minutes(n), n);
+		}
+		// drops the buckets for minutes 0-9 and 10-19 only
+		Assertions.assertThat(map.evictBefore(minutes(25))).isEqualTo(20);
+		Assertions.assertThat(map.size()).isEqualTo(80);
+		Assertions.assertThat(map.firstEntry().getValue()).isEqualTo(20);
+		Assertions.assertThat(map.get(minutes(5))).isNull();
+		// emptied buckets are dropped
+		for (int n = 20; n < 30; n++) {
+			map.remove(minutes(n));
+		}
+		Assertions.assertThat(map.getBucketCount()).isEqualTo(7);
+		Assertions.assertThat(map.firstEntry().getValue()).isEqualTo(30);
+		Assertions.assertThat(map.put(minutes(25), 25)).isNull();
+		Assertions.assertThat(map.getBucketCount()).isEqualTo(8);
+		Assertions.assertThat(map.size()).isEqualTo(71);
+		Assertions.assertThatThrownBy(() -> new VTimestampMap<>(VInterval.of(1, ChronoUnit.MONTHS)))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	public void testConcurrentWriters() throws Exception {
+		VTimestampMap<Long> map = new VTimestampMap<>(VInterval.of(1, TimeUnit.SECONDS));
+		long start = EpochNanos.of(START);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int t = 0; t < 4; t++) {
+				long offset = t;
+				futures.add(executor.submit(() -> {
+					for (long i = 0; i < 10_000; i++) {
+						long key = start + (i * 4 + offset) * 1_000_000L;
+						map.put(key, key);
+					}
+				}));
+			}
+			futures.add(executor.submit(() -> {
+				for (int i = 0; i < 20; i++) {
+					map.evictBefore(EpochNanos.toTimestamp(start + i * 1_000_000_000L));
+				}
+			}));
+			for (Future<?> f : futures) {
+				f.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+		long[] count = new long[1];
+		long[] last = { Long.MIN_VALUE };
+		map.forEach(Long.MIN_VALUE, Long.MAX_VALUE, (nanos, v) -> {
+			Assertions.assertThat(nanos).isGreaterThan(last[0]).isEqualTo(v);
+			last[0] = nanos;
+			count[0]++;
+		});
+		Assertions.assertThat(map.size()).isEqualTo(count[0]);
+		Assertions.assertThat(count[0]).isGreaterThanOrEqualTo(40_000 - 19_000);
+	}
+
+}
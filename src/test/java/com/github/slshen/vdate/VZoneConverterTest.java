@@ -0,0 +1,69 @@
+package com.github.slshen.vdate;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+public class VZoneConverterTest {
+
+	@Test
+	public void testSorted() {
+		long[] ms = new long[200_000];
+		long start = Instant.parse("2017-01-01T00:00:00Z").toEpochMilli();
+		for (int i = 0; i < ms.length; i++) {
+			ms[i] = start + i * 601_013L;
+		}
+		check("America/New_York", ms);
+	}
+
+	@Test
+	public void testUnsorted() {
+		Random random = new Random(1);
+		long[] ms = new long[100_000];
+		for (int i = 0; i < ms.length; i++) {
+			ms[i] = random.nextLong() % 4_000_000_000_000L;
+		}
+		check("Europe/London", ms);
+		check("Australia/Lord_Howe", ms);
+		check("UTC", ms);
+		check("+05:30", ms);
+	}
+
+	@Test
+	public void testExtremes() {
+		long[] ms = { Long.MIN_VALUE / 1000, -1, 0, 1, Long.MAX_VALUE / 1000 };
+		check("America/Los_Angeles", ms);
+	}
+
+	@Test
+	public void testColumns() {
+		VZoneConverter.Columns c = new VZoneConverter(ZoneId.of("America/New_York"))
+				.convert(new long[] { new VDateTime("2018-11-04 01:30 -04:00").toTimestamp().toInstant().toEpochMilli(),
+						new VDateTime("2018-11-04 01:30 -05:00").toTimestamp().toInstant().toEpochMilli() });
+		Assertions.assertThat(c.getDate(0)).isEqualTo(new VDate("2018-11-04"));
+		Assertions.assertThat(c.getTimeOfDay(1)).isEqualTo(new VTimeOfDay("1:30"));
+		Assertions.assertThat(c.getOffsetSeconds()).containsExactly(-4 * 3600, -5 * 3600);
+		Assertions.assertThat(c.getDateTime(1).toTimestamp().toInstant().toEpochMilli())
+				.isEqualTo(c.getDateTime(0).toTimestamp().toInstant().toEpochMilli() + 3_600_000);
+	}
+
+	private static void check(String zone, long[] ms) {
+		ZoneId zoneId = ZoneId.of(zone);
+		VZoneConverter.Columns c = new VZoneConverter(zoneId).convert(ms);
+		for (int i = 0; i < ms.length; i++) {
+			ZonedDateTime expected = Instant.ofEpochMilli(ms[i]).atZone(zoneId);
+			if (c.getEpochDays()[i] != expected.toLocalDate().toEpochDay()
+					|| c.getNanosOfDay()[i] != expected.toLocalTime().toNanoOfDay()
+					|| c.getOffsetSeconds()[i] != expected.getOffset().getTotalSeconds()) {
+				Assertions.fail(zone + " " + ms[i] + " expected " + expected + " got "
+						+ Arrays.asList(c.getEpochDays()[i], c.getNanosOfDay()[i], c.getOffsetSeconds()[i]));
+			}
+		}
+	}
+
+}
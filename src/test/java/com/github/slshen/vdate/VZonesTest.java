@@ -0,0 +1,80 @@
+package com.github.slshen.vdate;
+
+import java.time.DateTimeException;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+public class VZonesTest {
+
+	@Test
+	public void testResolve() {
+		StringBuilder text = new StringBuilder("at 10:00 America/Chicago, then");
+		ZoneId chicago = VZones.resolve(text, 9, 24);
+		Assertions.assertThat(chicago).isEqualTo(ZoneId.of("America/Chicago"));
+		Assertions.assertThat(VZones.resolve("America/Chicago")).isSameAs(chicago);
+		Assertions.assertThat(VZones.rules(text, 9, 24)).isEqualTo(chicago.getRules());
+		Assertions.assertThat(VZones.resolve("PST")).isEqualTo(ZoneId.of("America/Los_Angeles"));
+		Assertions.assertThat(VZones.resolve("+05:30")).isEqualTo(ZoneId.of("+05:30"));
+		Assertions.assertThatThrownBy(() -> VZones.resolve("No/Such_Zone")).isInstanceOf(DateTimeException.class);
+		Assertions.assertThat(new VDateTime("2018-01-01 PST").toString())
+				.isEqualTo("2018-01-01T00:00-08:00[America/Los_Angeles]");
+	}
+
+	@Test
+	public void testIndex() {
+		VZones.preload(Arrays.asList("Europe/Paris", " Asia/Tokyo "));
+		int paris = VZones.indexOf(ZoneId.of("Europe/Paris"));
+		Assertions.assertThat(VZones.index("Europe/Paris", 0, 12)).isEqualTo(paris);
+		Assertions.assertThat(VZones.zoneAt(paris)).isEqualTo(ZoneId.of("Europe/Paris"));
+		Assertions.assertThat(VZones.rulesAt(paris)).isEqualTo(ZoneId.of("Europe/Paris").getRules());
+		Assertions.assertThat(VZones.indexOf(ZoneId.of("Asia/Tokyo"))).isNotEqualTo(paris).isLessThan(VZones.size());
+	}
+
+	@Test
+	public void testAliases() {
+		Map<String, String> original = VZones.getAliases();
+		try {
+			Map<String, String> aliases = new HashMap<>();
+			aliases.put("NYC", "America/New_York");
+			VZones.setAliases(aliases);
+			Assertions.assertThat(VZones.resolve("NYC")).isEqualTo(ZoneId.of("America/New_York"));
+			Assertions.assertThatThrownBy(() -> VZones.resolve("PST")).isInstanceOf(DateTimeException.class);
+			VZones.setAliases(Collections.emptyMap());
+			Assertions.assertThatThrownBy(() -> VZones.resolve("NYC")).isInstanceOf(DateTimeException.class);
+		} finally {
+			VZones.setAliases(original);
+		}
+	}
+
+	@Test
+	public void testSetAliasesWhileResolving() throws Exception {
+		Map<String, String> original = VZones.getAliases();
+		String[] zones = { "Europe/London", "Europe/Berlin" };
+		try {
+			for (int i = 0; i < 200; i++) {
+				AtomicBoolean stop = new AtomicBoolean();
+				Thread resolver = new Thread(() -> {
+					while (!stop.get()) {
+						VZones.resolve("XZ");
+					}
+				});
+				VZones.setAliases(Collections.singletonMap("XZ", zones[i & 1]));
+				resolver.start();
+				VZones.setAliases(Collections.singletonMap("XZ", zones[~i & 1]));
+				stop.set(true);
+				resolver.join();
+				Assertions.assertThat(VZones.resolve("XZ")).isEqualTo(ZoneId.of(zones[~i & 1]));
+			}
+		} finally {
+			VZones.setAliases(original);
+		}
+	}
+
+}